@@ -0,0 +1,45 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzes the synthetic programs, which are parsed once up front. Analyzing
+ * the same tree again overwrites the types and variables set previously.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private Ast.Source ast;
+
+    @Setup
+    public void setup() {
+        ast = new Parser(new Lexer(Programs.source(size)).lex()).parseSource();
+    }
+
+    @Benchmark
+    public Scope analyze() {
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.visit(ast);
+        return analyzer.getScope();
+    }
+
+}
@@ -0,0 +1,57 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes the parsed synthetic programs, to compare loading a
+ * {@link ParseCache} entry against lexing and parsing the source.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AstCodecBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private String source;
+    private Ast.Source ast;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        source = Programs.source(size);
+        ast = new Parser(new Lexer(source).lexBuffer()).parseSource();
+        encoded = AstCodec.encode(ast);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return AstCodec.encode(ast);
+    }
+
+    @Benchmark
+    public Ast.Source decode() {
+        return AstCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public Ast.Source lexAndParse() {
+        return new Parser(new Lexer(source).lexBuffer()).parseSource();
+    }
+
+}
@@ -0,0 +1,56 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a loop-heavy program, a call-heavy program, and the synthetic programs
+ * with the {@link Interpreter} and the {@link VirtualMachine}, both compiling
+ * to {@link Bytecode} each time and running bytecode compiled up front.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BytecodeBenchmark {
+
+    @Param({"loop", "calls", "small", "medium"})
+    public String program;
+
+    private Ast.Source ast;
+    private Bytecode compiled;
+
+    @Setup
+    public void setup() {
+        ast = new Parser(new Lexer(Programs.source(program)).lex()).parseSource();
+        compiled = new BytecodeCompiler(new Scope(null)).compile(ast);
+    }
+
+    @Benchmark
+    public Object interpret() {
+        return new Interpreter(new Scope(null)).visit(ast).getValue();
+    }
+
+    @Benchmark
+    public Object compileAndRun() {
+        return VirtualMachine.run(new BytecodeCompiler(new Scope(null)).compile(ast)).getValue();
+    }
+
+    @Benchmark
+    public Object run() {
+        return VirtualMachine.run(compiled).getValue();
+    }
+
+}
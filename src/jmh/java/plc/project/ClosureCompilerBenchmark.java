@@ -0,0 +1,56 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a loop-heavy program, a call-heavy program, and the synthetic programs
+ * with the {@link Interpreter} and the {@link ClosureCompiler}, both compiling
+ * each time and running a program compiled up front.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClosureCompilerBenchmark {
+
+    @Param({"loop", "calls", "small", "medium"})
+    public String program;
+
+    private Ast.Source ast;
+    private ClosureCompiler.Program compiled;
+
+    @Setup
+    public void setup() {
+        ast = new Parser(new Lexer(Programs.source(program)).lex()).parseSource();
+        compiled = new ClosureCompiler(new Scope(null)).compile(ast);
+    }
+
+    @Benchmark
+    public Object interpret() {
+        return new Interpreter(new Scope(null)).visit(ast).getValue();
+    }
+
+    @Benchmark
+    public Object compileAndRun() {
+        return new ClosureCompiler(new Scope(null)).compile(ast).run().getValue();
+    }
+
+    @Benchmark
+    public Object run() {
+        return compiled.run().getValue();
+    }
+
+}
@@ -0,0 +1,59 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the analyzed programs with the {@link Interpreter} and the {@link
+ * JitCompiler}, both compiling with javac each time and running a class
+ * compiled up front.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JitCompilerBenchmark {
+
+    @Param({"loop", "calls", "small", "medium"})
+    public String program;
+
+    private Ast.Source ast;
+    private JitCompiler jit;
+    private Class<?> compiled;
+
+    @Setup
+    public void setup() {
+        ast = new Parser(new Lexer(Programs.source(program)).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        jit = new JitCompiler();
+        compiled = jit.compile(ast);
+    }
+
+    @Benchmark
+    public Object interpret() {
+        return new Interpreter(new Scope(null)).visit(ast).getValue();
+    }
+
+    @Benchmark
+    public Object compileAndRun() {
+        return new JitCompiler().run(ast);
+    }
+
+    @Benchmark
+    public Object run() {
+        return jit.run(compiled);
+    }
+
+}
@@ -0,0 +1,62 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles the analyzed programs with the {@link JvmCompiler}, both to class
+ * files alone and defined as classes, and runs them compiling each time and
+ * compiled up front.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JvmCompilerBenchmark {
+
+    @Param({"loop", "calls", "small", "medium"})
+    public String program;
+
+    private Ast.Source ast;
+    private Class<?> compiled;
+
+    @Setup
+    public void setup() {
+        ast = new Parser(new Lexer(Programs.source(program)).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        compiled = new JvmCompiler().load(ast);
+    }
+
+    @Benchmark
+    public byte[] compile() {
+        return new JvmCompiler().compile(ast);
+    }
+
+    @Benchmark
+    public Class<?> load() {
+        return new JvmCompiler().load(ast);
+    }
+
+    @Benchmark
+    public Object compileAndRun() {
+        return new JvmCompiler().run(ast);
+    }
+
+    @Benchmark
+    public Object run() {
+        return JitCompiler.invoke(compiled);
+    }
+
+}
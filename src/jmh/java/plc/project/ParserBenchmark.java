@@ -0,0 +1,108 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the tokens of the synthetic programs, which are lexed once up front.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private static final String EDIT = "x = 1;\n";
+
+    private List<Token> tokens;
+    private TokenBuffer buffer;
+    private List<Token> errorTokens;
+    private TokenBuffer edited;
+    private Ast.Source previous;
+    private int offset;
+    private boolean inserted;
+
+    @Setup
+    public void setup() {
+        String source = Programs.source(size);
+        tokens = new Lexer(source).lex();
+        buffer = new Lexer(source).lexBuffer();
+        edited = new Lexer(source).lexBuffer();
+        previous = new Parser(edited).parseSource();
+        offset = source.indexOf("RETURN", source.length() / 2);
+        inserted = false;
+        // drop every eighth semicolon, so roughly one statement in eight fails
+        StringBuilder errors = new StringBuilder(source);
+        for (int i = errors.indexOf(";"), count = 0; i >= 0; i = errors.indexOf(";", i + 1), count++) {
+            if (count % 8 == 7) {
+                errors.deleteCharAt(i);
+            }
+        }
+        errorTokens = new Lexer(errors.toString()).lex();
+    }
+
+    @Benchmark
+    public Ast.Source parseSource() {
+        return new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source parseSourceBuffer() {
+        return new Parser(buffer).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source parseSourceLazy() {
+        Parser parser = new Parser(tokens);
+        parser.setLazy(true);
+        return parser.parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source parseSourceParallel() {
+        return new Parser(tokens).parseSourceParallel();
+    }
+
+    /**
+     * Parses the program with many syntax errors, recovering from each one.
+     */
+    @Benchmark
+    public List<ParseException> parseSourceErrors() {
+        List<ParseException> errors = new ArrayList<>();
+        new Parser(errorTokens).parseSource(errors);
+        return errors;
+    }
+
+    /**
+     * Alternately inserts and removes a statement in a method in the middle of
+     * the program, then relexes and reparses only what changed, as an editor
+     * would on each keystroke.
+     */
+    @Benchmark
+    public Ast.Source parseSourceIncremental() {
+        int[] region = inserted
+                ? Lexer.relex(edited, offset, EDIT.length(), "")
+                : Lexer.relex(edited, offset, 0, EDIT);
+        inserted = !inserted;
+        previous = new Parser(edited).parseSource(previous, region[0], region[1]);
+        return previous;
+    }
+
+}
@@ -0,0 +1,70 @@
+package plc.project;
+
+/**
+ * The synthetic programs for each named benchmark size, generated by {@link
+ * ProgramGenerator} with a fixed seed so every run measures the same input,
+ * and small loop-heavy and call-heavy programs for the execution benchmarks.
+ */
+final class Programs {
+
+    private static final long SEED = 4020;
+
+    private static final String LOOP = String.join("\n",
+            "LET total: Integer = 0;",
+            "DEF main(): Integer DO",
+            "    LET i = 0;",
+            "    WHILE i < 10000 DO",
+            "        IF i - i / 3 * 3 == 0 OR i < 100 DO",
+            "            total = total + i * 2;",
+            "        ELSE",
+            "            total = total - 1;",
+            "        END",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN total;",
+            "END"
+    );
+
+    private static final String CALLS = String.join("\n",
+            "DEF add(a: Integer, b: Integer): Integer DO",
+            "    RETURN a + b;",
+            "END",
+            "DEF fib(n: Integer): Integer DO",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN add(fib(n - 1), fib(n - 2));",
+            "END",
+            "DEF main(): Integer DO",
+            "    RETURN fib(18);",
+            "END"
+    );
+
+    /**
+     * The number of methods in each named program size.
+     */
+    static int methods(String size) {
+        switch (size) {
+            case "small": return 10;
+            case "medium": return 1_000;
+            case "huge": return 20_000;
+            default: throw new IllegalArgumentException("Unknown program size " + size + ".");
+        }
+    }
+
+    static String source(String size) {
+        if (size.equals("loop")) {
+            return LOOP;
+        } else if (size.equals("calls")) {
+            return CALLS;
+        }
+        int methods = methods(size);
+        return new ProgramGenerator(SEED)
+                .methods(methods)
+                .identifiers(Math.max(10, methods / 10))
+                .generate();
+    }
+
+    private Programs() {}
+
+}
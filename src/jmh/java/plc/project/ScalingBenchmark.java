@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexes, parses, and analyzes programs with 250 and 2000 methods. Near-linear
+ * stages take about 8 times as long for the larger program, while quadratic
+ * ones take about 64 times as long.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @Param({"250", "2000"})
+    public int methods;
+
+    private String source;
+    private List<Token> tokens;
+    private Ast.Source ast;
+
+    @Setup
+    public void setup() {
+        source = new ProgramGenerator(methods).methods(methods).identifiers(methods / 10).generate();
+        tokens = new Lexer(source).lex();
+        ast = new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return new Lexer(source).lex();
+    }
+
+    @Benchmark
+    public Ast.Source parse() {
+        return new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public Scope analyze() {
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.visit(ast);
+        return analyzer.getScope();
+    }
+
+}
@@ -5,17 +5,17 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
  * See the specification for information about what the different visit
  * methods should do.
  */
-public final class Analyzer implements Ast.Visitor<Void> {
+public final class Analyzer implements Ast.Visitor<Void>, Ast.IterativeVisitor<Void> {
 
     public Scope scope;
     private Ast.Method method;
-    private Ast.Expr returnType;
 
     public Analyzer(Scope parent) {
         scope = new Scope(parent);
@@ -28,15 +28,16 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Source ast) {
-        if(scope.lookupFunction("main", 0) != null && scope.lookupFunction("main", 0).getReturnType() == Environment.Type.INTEGER) {
-            for(Ast.Field field : ast.getFields()) {
-                visit(field);
-            }
-            for(Ast.Method method : ast.getMethods()) {
-                visit(method);
-            }
-        } else {
-            throw new RuntimeException();
+        for(Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        for(Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        // main is defined by visiting the methods above
+        Environment.Function main = scope.lookupFunction("main", 0);
+        if (main.getReturnType() != Environment.Type.INTEGER) {
+            throw new RuntimeException("Expected main/0 to return an Integer.");
         }
         return null;
     }
@@ -46,6 +47,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if (ast.getValue().isPresent()) { // if present, visit before defining variable
             Ast.Expr value = ast.getValue().get();
             Environment.Type target = Environment.getType(ast.getTypeName());
+            visit(value);
 
             // check if the value is assignable
             if (value.getType() == target ||
@@ -57,7 +59,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
                     )
             ) {
                 // field value is assignable
-                visit(ast.getValue().get());
             } else {
                 throw new RuntimeException();
             }
@@ -80,7 +81,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
 
         ast.setFunction(scope.defineFunction(ast.getName(), ast.getName(), paramTypes, returnType, args -> Environment.NIL));
+        Ast.Method enclosing = method;
         try {
+            method = ast;
             scope = new Scope(scope);
 
             for (int i = 0; i < ast.getParameters().size(); i++) {
@@ -92,6 +95,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
             }
         } finally {
             scope = scope.getParent();
+            method = enclosing;
         }
 
         return null;
@@ -158,21 +162,21 @@ public final class Analyzer implements Ast.Visitor<Void> {
             throw new RuntimeException();
         }
 
-        for (Ast.Stmt then : ast.getThenStatements()) {
-            try {
-                scope = new Scope(scope);
+        try {
+            scope = new Scope(scope);
+            for (Ast.Stmt then : ast.getThenStatements()) {
                 visit(then);
-            } finally {
-                scope = scope.getParent();
             }
+        } finally {
+            scope = scope.getParent();
         }
-        for (Ast.Stmt elseStmt : ast.getElseStatements()) {
-            try {
-                scope = new Scope(scope);
+        try {
+            scope = new Scope(scope);
+            for (Ast.Stmt elseStmt : ast.getElseStatements()) {
                 visit(elseStmt);
-            } finally {
-                scope = scope.getParent();
             }
+        } finally {
+            scope = scope.getParent();
         }
         return null;
     }
@@ -199,10 +203,15 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Stmt.While ast) {
         visit(ast.getCondition());
         if (ast.getCondition().getType() != Environment.Type.BOOLEAN) {
+            throw new RuntimeException("Expected a Boolean condition.");
+        }
+        try {
             scope = new Scope(scope);
             for (Ast.Stmt stmt : ast.getStatements()) {
                 visit(stmt);
             }
+        } finally {
+            scope = scope.getParent();
         }
         return null;
 
@@ -210,9 +219,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Stmt.Return ast) {
-        if (ast.getValue().getType() != returnType.getType()) {
-            throw new RuntimeException();
-        }
+        visit(ast.getValue());
+        requireAssignable(method.getFunction().getReturnType(), ast.getValue().getType());
         return null;
     }
 
@@ -263,20 +271,71 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expr.Group ast) {
-        if (ast.getExpression() instanceof Ast.Expr.Binary) {
-            visit(ast.getExpression());
-            ast.setType(ast.getExpression().getType());
-            return null;
-        }
-        throw new RuntimeException("Expected an Ast.Expr.Binary");
+        return evaluate(ast);
     }
 
     @Override
     public Void visit(Ast.Expr.Binary ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Ast.Expr next(Ast.Expr ast, List<Void> results) {
+        int visited = results.size();
+        if (ast instanceof Ast.Expr.Group) {
+            Ast.Expr expression = ((Ast.Expr.Group) ast).getExpression();
+            if (!(expression instanceof Ast.Expr.Binary)) {
+                throw new RuntimeException("Expected an Ast.Expr.Binary");
+            }
+            return visited == 0 ? expression : null;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            return visited == 0 ? binary.getLeft() : visited == 1 ? binary.getRight() : null;
+        } else if (ast instanceof Ast.Expr.Access) {
+            Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+            return visited == 0 && receiver.isPresent() ? receiver.get() : null;
+        } else if (ast instanceof Ast.Expr.Function) {
+            // the receiver takes the place of the first argument of methods
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            if (visited == 0 && function.getReceiver().isPresent()) {
+                return function.getReceiver().get();
+            }
+            return visited < function.getArguments().size() ? function.getArguments().get(visited) : null;
+        }
+        return null;
+    }
+
+    @Override
+    public Void finish(Ast.Expr ast, List<Void> results) {
+        if (ast instanceof Ast.Expr.Literal) {
+            return visit((Ast.Expr.Literal) ast);
+        } else if (ast instanceof Ast.Expr.Group) {
+            Ast.Expr.Group group = (Ast.Expr.Group) ast;
+            group.setType(group.getExpression().getType());
+            return null;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            return binary((Ast.Expr.Binary) ast);
+        } else if (ast instanceof Ast.Expr.Access) {
+            return access((Ast.Expr.Access) ast);
+        } else if (ast instanceof Ast.Expr.Function) {
+            return function((Ast.Expr.Function) ast);
+        }
+        throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+    }
+
+    private Void binary(Ast.Expr.Binary ast) {
         Ast.Expr left = ast.getLeft();
-        visit(left);
         Ast.Expr right = ast.getRight();
-        visit(right);
 
         switch (ast.getOperator()) {
             case "AND":
@@ -327,12 +386,10 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return null;
     }
 
-    @Override
-    public Void visit(Ast.Expr.Access ast) {
+    private Void access(Ast.Expr.Access ast) {
         if (ast.getReceiver().isPresent()) {
             // is field
             Ast.Expr expr = ast.getReceiver().get();
-            visit(expr);
             ast.setVariable(expr.getType().getField(ast.getName()));
         } else {
             // is not field
@@ -342,13 +399,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return null;
     }
 
-    @Override
-    public Void visit(Ast.Expr.Function ast) {
+    private Void function(Ast.Expr.Function ast) {
 
         if (ast.getReceiver().isPresent()) {
             // is Method
             Ast.Expr expr = ast.getReceiver().get();
-            visit(expr);
 
             Environment.Function func = expr.getType().getMethod(ast.getName(), ast.getArguments().size());
 
@@ -357,7 +412,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
             // starts at 1
             for (int i = 1; i < args.size(); i++) {
-                visit(args.get(i));
                 requireAssignable(argTypes.get(i), args.get(i).getType());
             }
 
@@ -372,7 +426,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
             // starts at 0
             for (int i = 0; i < args.size(); i++) {
-                visit(args.get(i));
                 requireAssignable(argTypes.get(i), args.get(i).getType());
             }
 
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * See the Parser assignment specification for specific notes on each AST class
@@ -113,7 +114,8 @@ public abstract class Ast {
         private final List<String> parameters;
         private final List<String> parameterTypeNames;
         private final Optional<String> returnTypeName;
-        private final List<Stmt> statements;
+        private volatile List<Stmt> statements;
+        private Supplier<List<Stmt>> body; // null once the statements are known
         private Environment.Function function = null;
 
         public Method(String name, List<String> parameters, List<Stmt> statements) {
@@ -131,6 +133,20 @@ public abstract class Ast {
             this.statements = statements;
         }
 
+        /**
+         * Creates a method whose statements are only parsed by the body on the
+         * first call to {@link #getStatements()}, which may be from any thread.
+         * If parsing throws, the exception is thrown from that call (and again
+         * from later calls).
+         */
+        public Method(String name, List<String> parameters, List<String> parameterTypeNames, Optional<String> returnTypeName, Supplier<List<Stmt>> body) {
+            this.name = name;
+            this.parameters = parameters;
+            this.parameterTypeNames = parameterTypeNames;
+            this.returnTypeName = returnTypeName;
+            this.body = body;
+        }
+
         public String getName() {
             return name;
         }
@@ -148,9 +164,27 @@ public abstract class Ast {
         }
 
         public List<Stmt> getStatements() {
+            List<Stmt> statements = this.statements;
+            if (statements == null) {
+                synchronized (this) {
+                    if (this.statements == null) {
+                        this.statements = body.get();
+                        body = null;
+                    }
+                    statements = this.statements;
+                }
+            }
             return statements;
         }
 
+        /**
+         * Returns true if the statements have been parsed, which is always the
+         * case unless the method was created with a body.
+         */
+        public boolean isParsed() {
+            return statements != null;
+        }
+
         public Environment.Function getFunction() {
             if (function == null) {
                 throw new IllegalStateException("function is uninitialized");
@@ -169,7 +203,7 @@ public abstract class Ast {
                     parameters.equals(((Method) obj).parameters) &&
                     parameterTypeNames.equals(((Method) obj).parameterTypeNames) &&
                     returnTypeName.equals(((Method) obj).returnTypeName) &&
-                    statements.equals(((Method) obj).statements) &&
+                    getStatements().equals(((Method) obj).getStatements()) &&
                     Objects.equals(function, ((Method) obj).function);
         }
 
@@ -180,7 +214,7 @@ public abstract class Ast {
                     ", parameters=" + parameters +
                     ", parameterTypeNames=" + parameterTypeNames +
                     ", returnTypeName='" + returnTypeName + '\'' +
-                    ", statements=" + statements +
+                    ", statements=" + getStatements() +
                     ", function=" + function +
                     '}';
         }
@@ -796,4 +830,48 @@ public abstract class Ast {
 
     }
 
+    /**
+     * An alternative to {@link Visitor} for expressions which keeps the
+     * expressions being visited on an explicit stack instead of the call
+     * stack, so the depth of an expression is only bounded by the heap.
+     *
+     * Each expression is visited in steps: {@link #next(Expr, List)} is called
+     * once initially and once after each subexpression it returns has been
+     * visited, with the results so far, and {@link #finish(Expr, List)} is
+     * called once it returns {@code null}. Visitors may do work in either, such
+     * as printing between subexpressions or skipping one entirely.
+     */
+    public interface IterativeVisitor<T> {
+
+        /**
+         * Returns the next subexpression to visit, or {@code null} if the
+         * expression can be finished.
+         */
+        Expr next(Expr ast, List<T> results);
+
+        T finish(Expr ast, List<T> results);
+
+        default T evaluate(Expr ast) {
+            List<Expr> expressions = new ArrayList<>();
+            List<List<T>> results = new ArrayList<>();
+            expressions.add(ast);
+            results.add(new ArrayList<>(2));
+            while (true) {
+                int top = expressions.size() - 1;
+                Expr next = next(expressions.get(top), results.get(top));
+                if (next != null) {
+                    expressions.add(next);
+                    results.add(new ArrayList<>(2));
+                } else {
+                    T result = finish(expressions.remove(top), results.remove(top));
+                    if (top == 0) {
+                        return result;
+                    }
+                    results.get(top - 1).add(result);
+                }
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,553 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Encodes an {@link Ast.Source} in a compact binary format and decodes it
+ * again, so a parsed source can be stored (see {@link ParseCache}) and loaded
+ * without lexing or parsing it. Only the syntax is encoded, not the results of
+ * analysis.
+ *
+ * The encoding starts with a magic number and {@link #VERSION}, followed by a
+ * table of every name and string literal, which nodes then refer to by index.
+ * Integers (counts, indices, and most literals) are unsigned varints, seven
+ * bits per byte with the high bit set on all but the last.
+ *
+ * Fields and methods are written in order with their counts, and statements
+ * in pre-order with a tag byte each. Expressions are written in post-order,
+ * each node after its subexpressions and ending with a zero byte, so they are
+ * encoded and decoded with explicit stacks (see {@link Ast.IterativeVisitor})
+ * and their depth is only bounded by the heap. An absent expression is just
+ * the zero byte.
+ */
+public final class AstCodec {
+
+    /**
+     * Incremented whenever the encoding changes, so older encodings are
+     * rejected instead of misread.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'P', 'L', 'C', 'A'};
+
+    private static final int EXPRESSION = 1;
+    private static final int DECLARATION = 2;
+    private static final int ASSIGNMENT = 3;
+    private static final int IF = 4;
+    private static final int FOR = 5;
+    private static final int WHILE = 6;
+    private static final int RETURN = 7;
+
+    private static final int END = 0;
+    private static final int NIL = 1;
+    private static final int TRUE = 2;
+    private static final int FALSE = 3;
+    private static final int INTEGER = 4; // fits in a long
+    private static final int BIG_INTEGER = 5;
+    private static final int DECIMAL = 6;
+    private static final int CHARACTER = 7;
+    private static final int STRING = 8;
+    private static final int GROUP = 9;
+    private static final int BINARY = 10;
+    private static final int ACCESS = 11;
+    private static final int ACCESS_RECEIVER = 12;
+    private static final int FUNCTION = 13;
+    private static final int FUNCTION_RECEIVER = 14;
+
+    private AstCodec() {}
+
+    /**
+     * Encodes the source, parsing the statements of any lazy methods.
+     */
+    public static byte[] encode(Ast.Source source) {
+        Encoder encoder = new Encoder();
+        encoder.source(source);
+        Output output = new Output();
+        output.bytes(MAGIC, MAGIC.length);
+        output.varint(VERSION);
+        output.varint(encoder.strings.size());
+        for (String string : encoder.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.varint(bytes.length);
+            output.bytes(bytes, bytes.length);
+        }
+        output.bytes(encoder.output.bytes, encoder.output.size);
+        return Arrays.copyOf(output.bytes, output.size);
+    }
+
+    /**
+     * Decodes a source from {@link #encode(Ast.Source)}, throwing an {@link
+     * IllegalArgumentException} if the bytes are not a valid encoding of this
+     * {@link #VERSION}.
+     */
+    public static Ast.Source decode(byte[] bytes) {
+        Decoder decoder = new Decoder(bytes);
+        try {
+            for (byte magic : MAGIC) {
+                if (decoder.bytes[decoder.index++] != magic) {
+                    throw decoder.error("Not an encoded AST");
+                }
+            }
+            if (decoder.varint() != VERSION) {
+                throw decoder.error("Unsupported encoding version");
+            }
+            decoder.strings = new String[decoder.count()];
+            for (int i = 0; i < decoder.strings.length; i++) {
+                int length = decoder.count();
+                decoder.strings[i] = new String(bytes, decoder.index, length, StandardCharsets.UTF_8);
+                decoder.index += length;
+            }
+            Ast.Source source = decoder.source();
+            if (decoder.index != bytes.length) {
+                throw decoder.error("Unexpected trailing bytes");
+            }
+            return source;
+        } catch (IndexOutOfBoundsException e) {
+            throw decoder.error("Unexpected end of encoding");
+        }
+    }
+
+    /**
+     * A growable byte array.
+     */
+    private static final class Output {
+
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + length));
+            }
+        }
+
+        private void write(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void bytes(byte[] values, int length) {
+            ensure(length);
+            System.arraycopy(values, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+    }
+
+    private static final class Encoder implements Ast.IterativeVisitor<Void> {
+
+        private final Output output = new Output();
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        private void string(String string) {
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.put(string, index);
+            }
+            output.varint(index);
+        }
+
+        private void strings(List<String> strings) {
+            output.varint(strings.size());
+            for (String string : strings) {
+                string(string);
+            }
+        }
+
+        /**
+         * Writes an optional string as 1 followed by the string, or 0 if absent.
+         */
+        private void optional(Optional<String> string) {
+            if (string.isPresent()) {
+                output.varint(1);
+                string(string.get());
+            } else {
+                output.varint(0);
+            }
+        }
+
+        private void source(Ast.Source ast) {
+            output.varint(ast.getFields().size());
+            for (Ast.Field field : ast.getFields()) {
+                string(field.getName());
+                string(field.getTypeName());
+                expression(field.getValue());
+            }
+            output.varint(ast.getMethods().size());
+            for (Ast.Method method : ast.getMethods()) {
+                string(method.getName());
+                strings(method.getParameters());
+                strings(method.getParameterTypeNames());
+                optional(method.getReturnTypeName());
+                block(method.getStatements());
+            }
+        }
+
+        private void block(List<Ast.Stmt> statements) {
+            output.varint(statements.size());
+            for (Ast.Stmt statement : statements) {
+                statement(statement);
+            }
+        }
+
+        private void statement(Ast.Stmt ast) {
+            if (ast instanceof Ast.Stmt.Expression) {
+                output.write(EXPRESSION);
+                expression(((Ast.Stmt.Expression) ast).getExpression());
+            } else if (ast instanceof Ast.Stmt.Declaration) {
+                Ast.Stmt.Declaration declaration = (Ast.Stmt.Declaration) ast;
+                output.write(DECLARATION);
+                string(declaration.getName());
+                optional(declaration.getTypeName());
+                expression(declaration.getValue());
+            } else if (ast instanceof Ast.Stmt.Assignment) {
+                output.write(ASSIGNMENT);
+                expression(((Ast.Stmt.Assignment) ast).getReceiver());
+                expression(((Ast.Stmt.Assignment) ast).getValue());
+            } else if (ast instanceof Ast.Stmt.If) {
+                Ast.Stmt.If statement = (Ast.Stmt.If) ast;
+                output.write(IF);
+                expression(statement.getCondition());
+                block(statement.getThenStatements());
+                block(statement.getElseStatements());
+            } else if (ast instanceof Ast.Stmt.For) {
+                Ast.Stmt.For statement = (Ast.Stmt.For) ast;
+                output.write(FOR);
+                string(statement.getName());
+                expression(statement.getValue());
+                block(statement.getStatements());
+            } else if (ast instanceof Ast.Stmt.While) {
+                output.write(WHILE);
+                expression(((Ast.Stmt.While) ast).getCondition());
+                block(((Ast.Stmt.While) ast).getStatements());
+            } else if (ast instanceof Ast.Stmt.Return) {
+                output.write(RETURN);
+                expression(((Ast.Stmt.Return) ast).getValue());
+            } else {
+                throw new AssertionError("Unknown statement " + ast.getClass().getName() + ".");
+            }
+        }
+
+        private void expression(Optional<Ast.Expr> ast) {
+            if (ast.isPresent()) {
+                expression(ast.get());
+            } else {
+                output.write(END);
+            }
+        }
+
+        private void expression(Ast.Expr ast) {
+            evaluate(ast);
+            output.write(END);
+        }
+
+        @Override
+        public Ast.Expr next(Ast.Expr ast, List<Void> results) {
+            int visited = results.size();
+            if (ast instanceof Ast.Expr.Group) {
+                return visited == 0 ? ((Ast.Expr.Group) ast).getExpression() : null;
+            } else if (ast instanceof Ast.Expr.Binary) {
+                if (visited == 0) {
+                    return ((Ast.Expr.Binary) ast).getLeft();
+                } else if (visited == 1) {
+                    return ((Ast.Expr.Binary) ast).getRight();
+                }
+            } else if (ast instanceof Ast.Expr.Access) {
+                Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+                if (visited == 0 && receiver.isPresent()) {
+                    return receiver.get();
+                }
+            } else if (ast instanceof Ast.Expr.Function) {
+                Ast.Expr.Function function = (Ast.Expr.Function) ast;
+                if (visited == 0 && function.getReceiver().isPresent()) {
+                    return function.getReceiver().get();
+                }
+                int argument = visited - (function.getReceiver().isPresent() ? 1 : 0);
+                if (argument < function.getArguments().size()) {
+                    return function.getArguments().get(argument);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void finish(Ast.Expr ast, List<Void> results) {
+            if (ast instanceof Ast.Expr.Literal) {
+                literal(((Ast.Expr.Literal) ast).getLiteral());
+            } else if (ast instanceof Ast.Expr.Group) {
+                output.write(GROUP);
+            } else if (ast instanceof Ast.Expr.Binary) {
+                output.write(BINARY);
+                string(((Ast.Expr.Binary) ast).getOperator());
+            } else if (ast instanceof Ast.Expr.Access) {
+                Ast.Expr.Access access = (Ast.Expr.Access) ast;
+                output.write(access.getReceiver().isPresent() ? ACCESS_RECEIVER : ACCESS);
+                string(access.getName());
+            } else if (ast instanceof Ast.Expr.Function) {
+                Ast.Expr.Function function = (Ast.Expr.Function) ast;
+                output.write(function.getReceiver().isPresent() ? FUNCTION_RECEIVER : FUNCTION);
+                string(function.getName());
+                output.varint(function.getArguments().size());
+            } else {
+                throw new AssertionError("Unknown expression " + ast.getClass().getName() + ".");
+            }
+            return null;
+        }
+
+        private void literal(Object literal) {
+            if (literal == null) {
+                output.write(NIL);
+            } else if (literal instanceof Boolean) {
+                output.write((Boolean) literal ? TRUE : FALSE);
+            } else if (literal instanceof BigInteger) {
+                BigInteger integer = (BigInteger) literal;
+                if (integer.bitLength() < 64) {
+                    output.write(INTEGER);
+                    output.varint(zigzag(integer.longValue()));
+                } else {
+                    output.write(BIG_INTEGER);
+                    integer(integer);
+                }
+            } else if (literal instanceof BigDecimal) {
+                output.write(DECIMAL);
+                output.varint(zigzag(((BigDecimal) literal).scale()));
+                integer(((BigDecimal) literal).unscaledValue());
+            } else if (literal instanceof Character) {
+                output.write(CHARACTER);
+                output.varint((Character) literal);
+            } else if (literal instanceof String) {
+                output.write(STRING);
+                string((String) literal);
+            } else {
+                throw new AssertionError("Unknown literal " + literal.getClass().getName() + ".");
+            }
+        }
+
+        private void integer(BigInteger integer) {
+            byte[] bytes = integer.toByteArray();
+            output.varint(bytes.length);
+            output.bytes(bytes, bytes.length);
+        }
+
+        /**
+         * Maps signed values to unsigned ones with small magnitudes first (0,
+         * -1, 1, -2, ...), so small negative values are short varints.
+         */
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+    }
+
+    private static final class Decoder {
+
+        private final byte[] bytes;
+        private int index = 0;
+        private String[] strings;
+        private final List<Ast.Expr> stack = new ArrayList<>();
+
+        private Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at byte " + index + ".");
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte next = bytes[index++];
+                value |= (long) (next & 0x7F) << shift;
+                if (next >= 0) {
+                    return value;
+                }
+            }
+            throw error("Malformed varint");
+        }
+
+        /**
+         * Reads a count or length, which must be a non-negative int.
+         */
+        private int count() {
+            long count = varint();
+            if (count < 0 || count > Integer.MAX_VALUE) {
+                throw error("Invalid count");
+            }
+            return (int) count;
+        }
+
+        private String string() {
+            int index = count();
+            if (index >= strings.length) {
+                throw error("Invalid string index");
+            }
+            return strings[index];
+        }
+
+        private List<String> strings() {
+            int count = count();
+            List<String> strings = new ArrayList<>(Math.min(count, bytes.length));
+            for (int i = 0; i < count; i++) {
+                strings.add(string());
+            }
+            return strings;
+        }
+
+        private Optional<String> optional() {
+            return count() == 0 ? Optional.empty() : Optional.of(string());
+        }
+
+        private Ast.Source source() {
+            int fieldCount = count();
+            List<Ast.Field> fields = new ArrayList<>(Math.min(fieldCount, bytes.length));
+            for (int i = 0; i < fieldCount; i++) {
+                fields.add(new Ast.Field(string(), string(), optionalExpression()));
+            }
+            int methodCount = count();
+            List<Ast.Method> methods = new ArrayList<>(Math.min(methodCount, bytes.length));
+            for (int i = 0; i < methodCount; i++) {
+                methods.add(new Ast.Method(string(), strings(), strings(), optional(), block()));
+            }
+            return new Ast.Source(fields, methods);
+        }
+
+        private List<Ast.Stmt> block() {
+            int count = count();
+            List<Ast.Stmt> statements = new ArrayList<>(Math.min(count, bytes.length));
+            for (int i = 0; i < count; i++) {
+                statements.add(statement());
+            }
+            return statements;
+        }
+
+        private Ast.Stmt statement() {
+            switch (bytes[index++]) {
+                case EXPRESSION:
+                    return new Ast.Stmt.Expression(expression());
+                case DECLARATION:
+                    return new Ast.Stmt.Declaration(string(), optional(), optionalExpression());
+                case ASSIGNMENT:
+                    return new Ast.Stmt.Assignment(expression(), expression());
+                case IF:
+                    return new Ast.Stmt.If(expression(), block(), block());
+                case FOR:
+                    return new Ast.Stmt.For(string(), expression(), block());
+                case WHILE:
+                    return new Ast.Stmt.While(expression(), block());
+                case RETURN:
+                    return new Ast.Stmt.Return(expression());
+                default:
+                    index--;
+                    throw error("Invalid statement tag");
+            }
+        }
+
+        private Ast.Expr expression() {
+            return optionalExpression().orElseThrow(() -> error("Missing expression"));
+        }
+
+        /**
+         * Reads expression nodes up to the end byte, pushing each onto the
+         * stack after popping its subexpressions.
+         */
+        private Optional<Ast.Expr> optionalExpression() {
+            int base = stack.size(); // expressions of an enclosing statement are never on the stack
+            for (int tag = bytes[index++]; tag != END; tag = bytes[index++]) {
+                stack.add(node(tag, base));
+            }
+            if (stack.size() > base + 1) {
+                throw error("Unused expressions");
+            }
+            return stack.size() == base ? Optional.empty() : Optional.of(stack.remove(base));
+        }
+
+        private Ast.Expr node(int tag, int base) {
+            switch (tag) {
+                case NIL:
+                    return new Ast.Expr.Literal(null);
+                case TRUE:
+                    return new Ast.Expr.Literal(true);
+                case FALSE:
+                    return new Ast.Expr.Literal(false);
+                case INTEGER: {
+                    long value = varint();
+                    return new Ast.Expr.Literal(BigInteger.valueOf((value >>> 1) ^ -(value & 1)));
+                }
+                case BIG_INTEGER:
+                    return new Ast.Expr.Literal(integer());
+                case DECIMAL: {
+                    long scale = varint();
+                    return new Ast.Expr.Literal(new BigDecimal(integer(), (int) ((scale >>> 1) ^ -(scale & 1))));
+                }
+                case CHARACTER:
+                    return new Ast.Expr.Literal((char) varint());
+                case STRING:
+                    return new Ast.Expr.Literal(string());
+                case GROUP:
+                    return new Ast.Expr.Group(pop(base));
+                case BINARY: {
+                    Ast.Expr right = pop(base);
+                    return new Ast.Expr.Binary(string(), pop(base), right);
+                }
+                case ACCESS:
+                    return new Ast.Expr.Access(Optional.empty(), string());
+                case ACCESS_RECEIVER:
+                    return new Ast.Expr.Access(Optional.of(pop(base)), string());
+                case FUNCTION:
+                case FUNCTION_RECEIVER: {
+                    String name = string();
+                    int count = count();
+                    int start = stack.size() - count;
+                    if (start - (tag == FUNCTION_RECEIVER ? 1 : 0) < base) {
+                        throw error("Missing expression");
+                    }
+                    List<Ast.Expr> arguments = new ArrayList<>(stack.subList(start, stack.size()));
+                    stack.subList(start, stack.size()).clear();
+                    Optional<Ast.Expr> receiver = tag == FUNCTION_RECEIVER ? Optional.of(pop(base)) : Optional.empty();
+                    return new Ast.Expr.Function(receiver, name, arguments);
+                }
+                default:
+                    index--;
+                    throw error("Invalid expression tag");
+            }
+        }
+
+        private Ast.Expr pop(int base) {
+            if (stack.size() == base) {
+                throw error("Missing expression");
+            }
+            return stack.remove(stack.size() - 1);
+        }
+
+        private BigInteger integer() {
+            int length = count();
+            if (length == 0) {
+                throw error("Invalid integer");
+            }
+            BigInteger integer = new BigInteger(Arrays.copyOfRange(bytes, index, index + length));
+            index += length;
+            return integer;
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+package plc.project;
+
+import java.util.List;
+
+/**
+ * A program compiled by the {@link BytecodeCompiler} for the {@link
+ * VirtualMachine}, which is a {@link Chunk} for each method and one more,
+ * first, for the code outside of methods.
+ *
+ * Each instruction of a chunk is an opcode followed by its operands, which
+ * are registers of the chunk's frame ({@code r}), indices into its constants
+ * ({@code k}), jump targets ({@code j}), or a count followed by that many
+ * registers ({@code n}), as given by {@link #FORMATS}. Operands are read
+ * before the destination register, which comes first, is written, so it may
+ * be the same as any of them.
+ */
+public final class Bytecode {
+
+    static final int CONST = 0;       // r[a] = k[b]
+    static final int MOVE = 1;        // r[a] = r[b]
+    static final int GET_GLOBAL = 2;  // r[a] = value of variable k[b]
+    static final int SET_GLOBAL = 3;  // variable k[a] = r[b]
+    static final int GET_NAME = 4;    // r[a] = value of the variable named k[b]
+    static final int SET_NAME = 5;    // variable named k[a] = r[b]
+    static final int GET_FIELD = 6;   // r[a] = field k[c] of r[b]
+    static final int SET_FIELD = 7;   // field k[b] of r[a] = r[c]
+    static final int ADD = 8;         // r[a] = r[b] + r[c], and likewise to GE
+    static final int SUB = 9;
+    static final int MUL = 10;
+    static final int DIV = 11;
+    static final int AND = 12;
+    static final int OR = 13;
+    static final int EQ = 14;
+    static final int NE = 15;
+    static final int LT = 16;
+    static final int LE = 17;
+    static final int GT = 18;
+    static final int GE = 19;
+    static final int SKIP_AND = 20;   // if r[b] is FALSE, r[a] = FALSE and jump to c
+    static final int SKIP_OR = 21;    // if r[b] is TRUE, r[a] = TRUE and jump to c
+    static final int JUMP = 22;       // jump to a
+    static final int JUMP_FALSE = 23; // if r[a] is FALSE, jump to b
+    static final int ITERATE = 24;    // r[a] = iterator of r[b]
+    static final int NEXT = 25;       // r[a] = next of iterator r[b], or jump to c
+    static final int CALL = 26;       // r[a] = function k[b] of the n arguments
+    static final int CALL_NAME = 27;  // r[a] = function named k[b] of the n arguments
+    static final int INVOKE = 28;     // r[a] = chunk k[b] of the n arguments
+    static final int CALL_METHOD = 29; // r[a] = method k[b] of r[c] with the n arguments
+    static final int RETURN = 30;     // return r[a]
+
+    static final String[] NAMES = {
+            "CONST", "MOVE", "GET_GLOBAL", "SET_GLOBAL", "GET_NAME", "SET_NAME", "GET_FIELD", "SET_FIELD",
+            "ADD", "SUB", "MUL", "DIV", "AND", "OR", "EQ", "NE", "LT", "LE", "GT", "GE",
+            "SKIP_AND", "SKIP_OR", "JUMP", "JUMP_FALSE", "ITERATE", "NEXT",
+            "CALL", "CALL_NAME", "INVOKE", "CALL_METHOD", "RETURN"
+    };
+
+    static final String[] FORMATS = {
+            "rk", "rr", "rk", "kr", "rk", "kr", "rrk", "rkr",
+            "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr",
+            "rrj", "rrj", "j", "rj", "rr", "rrj",
+            "rkn", "rkn", "rkn", "rkrn", "r"
+    };
+
+    private final List<Chunk> chunks;
+
+    Bytecode(List<Chunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the number of words in the instruction at the index.
+     */
+    static int size(int[] code, int pc) {
+        String format = FORMATS[code[pc]];
+        int size = 1 + format.length();
+        if (format.endsWith("n")) {
+            size += code[pc + format.length()];
+        }
+        return size;
+    }
+
+    /**
+     * Returns a listing of every chunk, for debugging.
+     */
+    public String disassemble() {
+        StringBuilder builder = new StringBuilder();
+        for (Chunk chunk : chunks) {
+            chunk.disassemble(builder);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return disassemble();
+    }
+
+    /**
+     * The code for a method, or for the code outside of methods, and the
+     * number of registers in its frame. The arguments of a method are passed
+     * in its first registers.
+     */
+    public static final class Chunk {
+
+        final String name;
+        final int arity;
+        final Scope scope;
+        int[] code;
+        Object[] constants;
+        int registers;
+
+        Chunk(String name, int arity, Scope scope) {
+            this.name = name;
+            this.arity = arity;
+            this.scope = scope;
+            this.registers = arity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+
+        private void disassemble(StringBuilder builder) {
+            builder.append(name).append('/').append(arity).append(" registers=").append(registers).append('\n');
+            for (int pc = 0; pc < code.length; pc += size(code, pc)) {
+                builder.append(String.format("%6d  %-11s", pc, NAMES[code[pc]]));
+                String format = FORMATS[code[pc]];
+                StringBuilder comment = new StringBuilder();
+                for (int i = 0; i < format.length(); i++) {
+                    int operand = code[pc + 1 + i];
+                    builder.append(i == 0 ? " " : ", ");
+                    switch (format.charAt(i)) {
+                        case 'r':
+                            builder.append('r').append(operand);
+                            break;
+                        case 'k':
+                            builder.append('k').append(operand);
+                            comment.append(comment.length() == 0 ? "  ; " : ", ").append(describe(constants[operand]));
+                            break;
+                        case 'j':
+                            builder.append('@').append(operand);
+                            break;
+                        case 'n':
+                            builder.append('(');
+                            for (int j = 0; j < operand; j++) {
+                                builder.append(j == 0 ? "r" : ", r").append(code[pc + 2 + i + j]);
+                            }
+                            builder.append(')');
+                            break;
+                    }
+                }
+                builder.append(comment).append('\n');
+            }
+        }
+
+        private static String describe(Object constant) {
+            if (constant instanceof Environment.PlcObject) {
+                Object value = ((Environment.PlcObject) constant).getValue();
+                if (value instanceof String) {
+                    return "\"" + value + "\"";
+                } else if (value instanceof Character) {
+                    return "'" + value + "'";
+                }
+                return String.valueOf(value);
+            } else if (constant instanceof Environment.Variable) {
+                return ((Environment.Variable) constant).getName();
+            } else if (constant instanceof Environment.Function) {
+                Environment.Function function = (Environment.Function) constant;
+                return function.getName() + "/" + function.getParameterTypes().size();
+            } else if (constant instanceof Chunk) {
+                return ((Chunk) constant).name + "/" + ((Chunk) constant).arity;
+            }
+            return String.valueOf(constant);
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk{" +
+                    "name='" + name + '\'' +
+                    ", arity=" + arity +
+                    ", registers=" + registers +
+                    ", code=" + code.length +
+                    ", constants=" + constants.length +
+                    '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,579 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles an AST to {@link Bytecode} for the {@link VirtualMachine}.
+ *
+ * Parameters and local variables are given fixed registers of their method's
+ * frame, and the results of subexpressions are given temporary registers above
+ * them, which are reused once the enclosing expression or statement is done.
+ * Variables and functions are resolved when compiling as with the {@link
+ * ClosureCompiler}, and those which aren't defined then are looked up by name
+ * when run. Expressions are compiled iteratively, so their depth is limited
+ * only by the size of the frame.
+ *
+ * As with the {@link ClosureCompiler}, names in a method are resolved through
+ * the scope the method was defined in, and {@code IF} conditions are evaluated
+ * once.
+ */
+public final class BytecodeCompiler implements Ast.Visitor<Integer>, Ast.IterativeVisitor<Integer> {
+
+    private final Scope scope;
+    private final Map<Ast.Method, Bytecode.Chunk> declared = new IdentityHashMap<>();
+    private final Map<Environment.Function, Bytecode.Chunk> methods = new IdentityHashMap<>();
+    private List<Bytecode.Chunk> chunks = new ArrayList<>();
+    private Assembler assembler;
+
+    // the first register of each expression being compiled, and the
+    // instructions skipping the right operand of each AND or OR
+    private int[] marks = new int[16];
+    private int depth = 0;
+    private int[] skips = new int[16];
+    private int skipCount = 0;
+
+    public BytecodeCompiler(Scope parent) {
+        scope = new Scope(parent);
+        Environment.definePrint(scope);
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles the AST, defining its fields and methods in the scope. The
+     * first chunk returns the value of an expression, the result of main for
+     * a source, or {@link Environment#NIL} otherwise.
+     */
+    public Bytecode compile(Ast ast) {
+        chunks = new ArrayList<>();
+        assembler = new Assembler(new Bytecode.Chunk("<program>", 0, scope));
+        chunks.add(assembler.chunk);
+        Integer result = ast instanceof Ast.Expr ? Integer.valueOf(expression((Ast.Expr) ast)) : visit(ast);
+        if (result == null) {
+            result = constant(Environment.NIL);
+        }
+        assembler.emit(Bytecode.RETURN, result);
+        assembler.finish();
+        return new Bytecode(chunks);
+    }
+
+    @Override
+    public Integer visit(Ast.Source ast) {
+        for (Ast.Method method : ast.getMethods()) { // so calls to later methods are resolved
+            declare(method);
+        }
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return call(assembler.temp(), "main", new int[0]);
+    }
+
+    @Override
+    public Integer visit(Ast.Field ast) {
+        int value = ast.getValue().isPresent() ? expression(ast.getValue().get()) : constant(Environment.NIL);
+        Environment.Variable variable = scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, Environment.NIL);
+        assembler.emit(Bytecode.SET_GLOBAL, assembler.constant(variable), value);
+        assembler.free();
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Method ast) {
+        Bytecode.Chunk chunk = declared.containsKey(ast) ? declared.get(ast) : declare(ast);
+        Assembler enclosing = assembler;
+        try {
+            assembler = new Assembler(chunk);
+            assembler.push();
+            for (String parameter : ast.getParameters()) {
+                assembler.declare(parameter);
+            }
+            for (Ast.Stmt statement : ast.getStatements()) {
+                visit(statement);
+            }
+            assembler.emit(Bytecode.RETURN, constant(Environment.NIL));
+            assembler.finish();
+            chunks.add(chunk);
+        } finally {
+            assembler = enclosing;
+        }
+        return null;
+    }
+
+    /**
+     * Defines the function for a method, whose chunk is compiled later.
+     */
+    private Bytecode.Chunk declare(Ast.Method ast) {
+        Bytecode.Chunk chunk = new Bytecode.Chunk(ast.getName(), ast.getParameters().size(), scope);
+        scope.defineFunction(ast.getName(), chunk.arity, args -> VirtualMachine.invoke(chunk, args));
+        declared.put(ast, chunk);
+        methods.put(scope.lookupFunction(ast.getName(), chunk.arity), chunk);
+        return chunk;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.Expression ast) {
+        expression(ast.getExpression());
+        assembler.free();
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.Declaration ast) {
+        int value = ast.getValue().isPresent() ? expression(ast.getValue().get()) : constant(Environment.NIL);
+        assembler.free();
+        if (assembler.blocks.isEmpty()) {
+            Environment.Variable variable = scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, Environment.NIL);
+            assembler.emit(Bytecode.SET_GLOBAL, assembler.constant(variable), value);
+            return null;
+        }
+        int register = assembler.declare(ast.getName());
+        if (register != value) {
+            assembler.emit(Bytecode.MOVE, register, value);
+        }
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            return null; // as in the interpreter
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        if (access.getReceiver().isPresent()) {
+            int receiver = expression(access.getReceiver().get());
+            int value = expression(ast.getValue());
+            assembler.emit(Bytecode.SET_FIELD, receiver, assembler.constant(access.getName()), value);
+        } else {
+            Integer local = assembler.lookup(access.getName());
+            int value = expression(ast.getValue());
+            if (local != null) {
+                if (local != value) {
+                    assembler.emit(Bytecode.MOVE, local, value);
+                }
+            } else {
+                Environment.Variable variable = global(access.getName());
+                if (variable != null) {
+                    assembler.emit(Bytecode.SET_GLOBAL, assembler.constant(variable), value);
+                } else {
+                    assembler.emit(Bytecode.SET_NAME, assembler.constant(access.getName()), value);
+                }
+            }
+        }
+        assembler.free();
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.If ast) {
+        int condition = expression(ast.getCondition());
+        assembler.free();
+        int jumpElse = assembler.emit(Bytecode.JUMP_FALSE, condition, -1);
+        block(ast.getThenStatements());
+        if (ast.getElseStatements().isEmpty()) {
+            assembler.patch(jumpElse);
+        } else {
+            int jumpEnd = assembler.emit(Bytecode.JUMP, -1);
+            assembler.patch(jumpElse);
+            block(ast.getElseStatements());
+            assembler.patch(jumpEnd);
+        }
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.For ast) {
+        int value = expression(ast.getValue());
+        assembler.free();
+        assembler.push();
+        try {
+            int iterator = assembler.declare(null);
+            assembler.emit(Bytecode.ITERATE, iterator, value);
+            int element = assembler.declare(ast.getName());
+            int loop = assembler.length;
+            int next = assembler.emit(Bytecode.NEXT, element, iterator, -1);
+            block(ast.getStatements());
+            assembler.emit(Bytecode.JUMP, loop);
+            assembler.patch(next);
+        } finally {
+            assembler.pop();
+        }
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.While ast) {
+        int loop = assembler.length;
+        int condition = expression(ast.getCondition());
+        assembler.free();
+        int jumpEnd = assembler.emit(Bytecode.JUMP_FALSE, condition, -1);
+        block(ast.getStatements());
+        assembler.emit(Bytecode.JUMP, loop);
+        assembler.patch(jumpEnd);
+        return null;
+    }
+
+    @Override
+    public Integer visit(Ast.Stmt.Return ast) {
+        assembler.emit(Bytecode.RETURN, expression(ast.getValue()));
+        assembler.free();
+        return null;
+    }
+
+    private void block(List<Ast.Stmt> statements) {
+        assembler.push();
+        try {
+            for (Ast.Stmt statement : statements) {
+                visit(statement);
+            }
+        } finally {
+            assembler.pop();
+        }
+    }
+
+    /**
+     * Returns the variable if it is defined, or null to look it up by name
+     * when run.
+     */
+    private Environment.Variable global(String name) {
+        try {
+            return scope.lookupVariable(name);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads the constant into a new temporary register.
+     */
+    private int constant(Environment.PlcObject value) {
+        int register = assembler.temp();
+        assembler.emit(Bytecode.CONST, register, assembler.constant(value));
+        return register;
+    }
+
+    private int call(int result, String name, int[] arguments) {
+        Environment.Function function;
+        try {
+            function = scope.lookupFunction(name, arguments.length);
+        } catch (RuntimeException e) {
+            function = null; // looked up by name when run
+        }
+        Bytecode.Chunk chunk = function != null ? methods.get(function) : null;
+        if (chunk != null) {
+            assembler.emit(Bytecode.INVOKE, result, assembler.constant(chunk), arguments);
+        } else if (function != null) {
+            assembler.emit(Bytecode.CALL, result, assembler.constant(function), arguments);
+        } else {
+            assembler.emit(Bytecode.CALL_NAME, result, assembler.constant(name), arguments);
+        }
+        return result;
+    }
+
+    /**
+     * Compiles an expression, returning the register holding its value.
+     */
+    private int expression(Ast.Expr ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Integer visit(Ast.Expr.Literal ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Integer visit(Ast.Expr.Group ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Integer visit(Ast.Expr.Binary ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Integer visit(Ast.Expr.Access ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Integer visit(Ast.Expr.Function ast) {
+        return evaluate(ast);
+    }
+
+    /**
+     * Compiles each subexpression in the order it is evaluated, with the
+     * arguments of a method call before its receiver, and skips the right
+     * operand of {@code AND} and {@code OR} if the left one decides them.
+     */
+    @Override
+    public Ast.Expr next(Ast.Expr ast, List<Integer> results) {
+        int visited = results.size();
+        if (visited == 0) {
+            if (depth == marks.length) {
+                marks = Arrays.copyOf(marks, 2 * depth);
+            }
+            marks[depth++] = assembler.top;
+        }
+        if (ast instanceof Ast.Expr.Group) {
+            return visited == 0 ? ((Ast.Expr.Group) ast).getExpression() : null;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            if (visited == 0) {
+                return binary.getLeft();
+            } else if (visited == 1) {
+                if (binary.getOperator().equals("AND") || binary.getOperator().equals("OR")) {
+                    if (skipCount == skips.length) {
+                        skips = Arrays.copyOf(skips, 2 * skipCount);
+                    }
+                    int opcode = binary.getOperator().equals("AND") ? Bytecode.SKIP_AND : Bytecode.SKIP_OR;
+                    skips[skipCount++] = assembler.emit(opcode, marks[depth - 1], results.get(0), -1);
+                }
+                return binary.getRight();
+            }
+            return null;
+        } else if (ast instanceof Ast.Expr.Access) {
+            Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+            return visited == 0 && receiver.isPresent() ? receiver.get() : null;
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            List<Ast.Expr> arguments = function.getArguments();
+            if (visited < arguments.size()) {
+                return arguments.get(visited);
+            }
+            return visited == arguments.size() && function.getReceiver().isPresent() ? function.getReceiver().get() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Emits the instruction for an expression once its subexpressions are
+     * compiled, freeing their temporary registers. The result goes in the
+     * first of them, unless the expression is a local variable.
+     */
+    @Override
+    public Integer finish(Ast.Expr ast, List<Integer> results) {
+        assembler.top = marks[--depth];
+        if (ast instanceof Ast.Expr.Literal) {
+            Object literal = ((Ast.Expr.Literal) ast).getLiteral();
+            return constant(literal == null ? Environment.NIL : Environment.create(literal));
+        } else if (ast instanceof Ast.Expr.Group) {
+            int result = results.get(0);
+            assembler.keep(result);
+            return result;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            int result = assembler.temp();
+            String operator = ((Ast.Expr.Binary) ast).getOperator();
+            assembler.emit(opcode(operator), result, results.get(0), results.get(1));
+            if (operator.equals("AND") || operator.equals("OR")) {
+                assembler.patch(skips[--skipCount]);
+            }
+            return result;
+        } else if (ast instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) ast;
+            if (access.getReceiver().isPresent()) {
+                int result = assembler.temp();
+                assembler.emit(Bytecode.GET_FIELD, result, results.get(0), assembler.constant(access.getName()));
+                return result;
+            }
+            Integer local = assembler.lookup(access.getName());
+            if (local != null) {
+                return local;
+            }
+            int result = assembler.temp();
+            Environment.Variable variable = global(access.getName());
+            if (variable != null) {
+                assembler.emit(Bytecode.GET_GLOBAL, result, assembler.constant(variable));
+            } else {
+                assembler.emit(Bytecode.GET_NAME, result, assembler.constant(access.getName()));
+            }
+            return result;
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            int[] arguments = new int[function.getArguments().size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = results.get(i);
+            }
+            int result = assembler.temp();
+            if (function.getReceiver().isPresent()) {
+                int name = assembler.constant(function.getName());
+                assembler.emit(Bytecode.CALL_METHOD, result, name, results.get(arguments.length), arguments);
+                return result;
+            }
+            return call(result, function.getName(), arguments);
+        }
+        throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+    }
+
+    private static int opcode(String operator) {
+        switch (operator) {
+            case "+": return Bytecode.ADD;
+            case "-": return Bytecode.SUB;
+            case "*": return Bytecode.MUL;
+            case "/": return Bytecode.DIV;
+            case "AND": return Bytecode.AND;
+            case "OR": return Bytecode.OR;
+            case "==": return Bytecode.EQ;
+            case "!=": return Bytecode.NE;
+            case "<": return Bytecode.LT;
+            case "<=": return Bytecode.LE;
+            case ">": return Bytecode.GT;
+            case ">=": return Bytecode.GE;
+            default: throw new RuntimeException("Unknown binary operator " + operator + ".");
+        }
+    }
+
+    /**
+     * The code, constants, and registers of the chunk being compiled.
+     * Registers below {@code slots} hold local variables, in the blocks they
+     * were declared in, and those from there to {@code top} are temporary.
+     */
+    private static final class Assembler {
+
+        private final Bytecode.Chunk chunk;
+        private int[] code = new int[64];
+        private int length = 0;
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> literals = new HashMap<>();
+        private final Map<Object, Integer> indices = new IdentityHashMap<>();
+        private final List<Map<String, Integer>> blocks = new ArrayList<>();
+        private final List<Integer> starts = new ArrayList<>();
+        private int slots = 0;
+        private int top = 0;
+        private int registers = 0;
+
+        private Assembler(Bytecode.Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        /**
+         * Appends an instruction, returning its index. An array operand is
+         * written as its length followed by its elements.
+         */
+        private int emit(int opcode, Object... operands) {
+            int start = length;
+            write(opcode);
+            for (Object operand : operands) {
+                if (operand instanceof int[]) {
+                    write(((int[]) operand).length);
+                    for (int register : (int[]) operand) {
+                        write(register);
+                    }
+                } else {
+                    write((Integer) operand);
+                }
+            }
+            return start;
+        }
+
+        private void write(int word) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, 2 * length);
+            }
+            code[length++] = word;
+        }
+
+        /**
+         * Sets the jump target of the instruction, which is its last operand,
+         * to the next instruction.
+         */
+        private void patch(int instruction) {
+            code[instruction + Bytecode.size(code, instruction) - 1] = length;
+        }
+
+        private int constant(Object constant) {
+            Map<Object, Integer> map = indices;
+            Object key = constant;
+            if (constant instanceof Environment.PlcObject && constant != Environment.NIL) {
+                map = literals;
+                key = ((Environment.PlcObject) constant).getValue();
+            }
+            Integer index = map.get(key);
+            if (index == null) {
+                index = constants.size();
+                constants.add(constant);
+                map.put(key, index);
+            }
+            return index;
+        }
+
+        private int temp() {
+            registers = Math.max(registers, top + 1);
+            return top++;
+        }
+
+        /**
+         * Keeps the temporary register holding a result once its expression
+         * is done.
+         */
+        private void keep(int register) {
+            if (register >= top) {
+                top = register + 1;
+            }
+        }
+
+        /**
+         * Frees the temporary registers after a statement.
+         */
+        private void free() {
+            top = slots;
+        }
+
+        private void push() {
+            blocks.add(new HashMap<>());
+            starts.add(slots);
+        }
+
+        private void pop() {
+            blocks.remove(blocks.size() - 1);
+            slots = starts.remove(starts.size() - 1);
+            top = slots;
+        }
+
+        /**
+         * Assigns the next register to a local variable, which is hidden from
+         * lookups if the name is null.
+         */
+        private int declare(String name) {
+            Map<String, Integer> block = blocks.get(blocks.size() - 1);
+            if (name != null) {
+                if (block.containsKey(name)) {
+                    throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+                }
+                block.put(name, slots);
+            }
+            top = ++slots;
+            registers = Math.max(registers, slots);
+            return slots - 1;
+        }
+
+        private Integer lookup(String name) {
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                Integer register = blocks.get(i).get(name);
+                if (register != null) {
+                    return register;
+                }
+            }
+            return null;
+        }
+
+        private void finish() {
+            chunk.code = Arrays.copyOf(code, length);
+            chunk.constants = constants.toArray();
+            chunk.registers = Math.max(registers, chunk.arity);
+        }
+
+    }
+
+}
@@ -0,0 +1,477 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a class file with fields and methods, for the {@link JvmCompiler}.
+ * Names are internal names ({@code java/lang/String}) and types are
+ * descriptors ({@code Ljava/lang/String;}).
+ *
+ * Classes are written as version 49 (Java 5), the last version before stack
+ * map frames, so the JVM infers the types at branches itself and the writer
+ * only needs to track the depth of the operand stack.
+ */
+final class ClassWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(pool);
+    private final Map<String, Integer> indices = new HashMap<>();
+    private int count = 1;
+    private final String name;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<MethodWriter> methods = new ArrayList<>();
+
+    ClassWriter(String name) {
+        this.name = name;
+    }
+
+    void field(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    MethodWriter method(int access, String name, String descriptor) {
+        MethodWriter method = new MethodWriter(this, access, name, descriptor);
+        methods.add(method);
+        return method;
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int self = classRef(name);
+            int parent = classRef("java/lang/Object");
+            List<byte[]> code = new ArrayList<>();
+            for (MethodWriter method : methods) {
+                code.add(method.toByteArray());
+            }
+            if (count > 0xFFFF) {
+                throw new RuntimeException("The class " + name + " has too many constants.");
+            }
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(count);
+            constants.flush();
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(self);
+            out.writeShort(parent);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (byte[] field : fields) {
+                out.write(field);
+            }
+            out.writeShort(code.size());
+            for (byte[] method : code) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    int utf8(String value) {
+        return constant("Utf8:" + value, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String name) {
+        String key = "Class:" + name;
+        Integer index = indices.get(key);
+        if (index != null) {
+            return index;
+        }
+        int utf8 = utf8(name);
+        return constant(key, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(utf8);
+        });
+    }
+
+    int string(String value) {
+        int utf8 = utf8(value);
+        return constant("String:" + value, 1, out -> {
+            out.writeByte(8);
+            out.writeShort(utf8);
+        });
+    }
+
+    int integer(int value) {
+        return constant("Integer:" + value, 1, out -> {
+            out.writeByte(3);
+            out.writeInt(value);
+        });
+    }
+
+    int decimal(double value) {
+        return constant("Double:" + Double.doubleToRawLongBits(value), 2, out -> {
+            out.writeByte(6);
+            out.writeDouble(value);
+        });
+    }
+
+    int memberRef(int tag, String owner, String name, String descriptor) {
+        // checked first, since members are referenced once per instruction
+        String key = tag + ":" + owner + "." + name + ":" + descriptor;
+        Integer index = indices.get(key);
+        if (index != null) {
+            return index;
+        }
+        int owned = classRef(owner);
+        int utf8Name = utf8(name);
+        int utf8Descriptor = utf8(descriptor);
+        int nameAndType = constant("NameAndType:" + name + ":" + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(utf8Name);
+            out.writeShort(utf8Descriptor);
+        });
+        return constant(key, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(owned);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(String key, int slots, Entry entry) {
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = count;
+            try {
+                entry.write(constants);
+            } catch (IOException e) {
+                throw new RuntimeException("The constant " + key + " can't be written.", e);
+            }
+            count += slots;
+            indices.put(key, index);
+        }
+        return index;
+    }
+
+    @FunctionalInterface
+    private interface Entry {
+
+        void write(DataOutputStream out) throws IOException;
+
+    }
+
+    /**
+     * A position in a method's code, and the depth of the operand stack
+     * there once a jump to it has been written.
+     */
+    static final class Label {
+
+        private int position = -1;
+        private int stack = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+    }
+
+    /**
+     * Writes the code of a method, tracking the depth of the operand stack
+     * to compute its maximum. Every instruction is written with its effect on
+     * the stack, which is computed from descriptors where they are given.
+     */
+    static final class MethodWriter {
+
+        static final int ACONST_NULL = 0x01;
+        static final int ICONST_0 = 0x03;
+        static final int DCONST_0 = 0x0E;
+        static final int ILOAD = 0x15;
+        static final int DLOAD = 0x18;
+        static final int ALOAD = 0x19;
+        static final int ISTORE = 0x36;
+        static final int DSTORE = 0x39;
+        static final int ASTORE = 0x3A;
+        static final int POP = 0x57;
+        static final int POP2 = 0x58;
+        static final int DUP = 0x59;
+        static final int IADD = 0x60;
+        static final int DADD = 0x63;
+        static final int ISUB = 0x64;
+        static final int DSUB = 0x67;
+        static final int IMUL = 0x68;
+        static final int DMUL = 0x6B;
+        static final int IDIV = 0x6C;
+        static final int DDIV = 0x6F;
+        static final int DCMPL = 0x97;
+        static final int DCMPG = 0x98;
+        static final int IFEQ = 0x99;
+        static final int IFNE = 0x9A;
+        static final int IFLT = 0x9B;
+        static final int IFGE = 0x9C;
+        static final int IFGT = 0x9D;
+        static final int IFLE = 0x9E;
+        static final int IF_ICMPEQ = 0x9F;
+        static final int IF_ICMPNE = 0xA0;
+        static final int IF_ICMPLT = 0xA1;
+        static final int IF_ICMPGE = 0xA2;
+        static final int IF_ICMPGT = 0xA3;
+        static final int IF_ICMPLE = 0xA4;
+        static final int GOTO = 0xA7;
+        static final int IRETURN = 0xAC;
+        static final int DRETURN = 0xAF;
+        static final int ARETURN = 0xB0;
+        static final int RETURN = 0xB1;
+        static final int GETSTATIC = 0xB2;
+        static final int GETFIELD = 0xB4;
+        static final int PUTFIELD = 0xB5;
+        static final int INVOKEVIRTUAL = 0xB6;
+        static final int INVOKESPECIAL = 0xB7;
+        static final int INVOKESTATIC = 0xB8;
+        static final int INVOKEINTERFACE = 0xB9;
+        static final int NEW = 0xBB;
+        static final int CHECKCAST = 0xC0;
+
+        private static final int BIPUSH = 0x10;
+        private static final int SIPUSH = 0x11;
+        private static final int LDC = 0x12;
+        private static final int LDC_W = 0x13;
+        private static final int LDC2_W = 0x14;
+        private static final int WIDE = 0xC4;
+
+        private final ClassWriter owner;
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private byte[] code = new byte[64];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals = 0;
+
+        private MethodWriter(ClassWriter owner, int access, String name, String descriptor) {
+            this.owner = owner;
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        /**
+         * Writes an instruction without operands.
+         */
+        void op(int opcode, int effect) {
+            write(opcode);
+            adjust(effect);
+        }
+
+        void integer(int value) {
+            if (value >= -1 && value <= 5) {
+                write(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                write(BIPUSH);
+                write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                write(SIPUSH);
+                u2(value);
+            } else {
+                constant(owner.integer(value));
+            }
+            adjust(1);
+        }
+
+        void decimal(double value) {
+            write(LDC2_W);
+            u2(owner.decimal(value));
+            adjust(2);
+        }
+
+        void string(String value) {
+            constant(owner.string(value));
+            adjust(1);
+        }
+
+        private void constant(int index) {
+            if (index <= 0xFF) {
+                write(LDC);
+                write(index);
+            } else {
+                write(LDC_W);
+                u2(index);
+            }
+        }
+
+        /**
+         * Writes a load or store of the local variable, which uses two slots
+         * if {@code size} is 2.
+         */
+        void local(int opcode, int slot, int size) {
+            if (slot > 0xFF) {
+                write(WIDE);
+                write(opcode);
+                u2(slot);
+            } else {
+                write(opcode);
+                write(slot);
+            }
+            adjust(opcode >= ISTORE ? -size : size);
+            maxLocals = Math.max(maxLocals, slot + size);
+        }
+
+        void locals(int slots) {
+            maxLocals = Math.max(maxLocals, slots);
+        }
+
+        void type(int opcode, String type) {
+            write(opcode);
+            u2(owner.classRef(type));
+            adjust(opcode == NEW ? 1 : 0);
+        }
+
+        void field(int opcode, String owner, String name, String descriptor) {
+            write(opcode);
+            u2(this.owner.memberRef(9, owner, name, descriptor));
+            int size = size(descriptor);
+            adjust(opcode == GETSTATIC ? size : opcode == GETFIELD ? size - 1 : -size - 1);
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor) {
+            write(opcode);
+            u2(this.owner.memberRef(opcode == INVOKEINTERFACE ? 11 : 10, owner, name, descriptor));
+            int arguments = 0;
+            int end = descriptor.indexOf(')');
+            for (int i = 1; i < end; i++) {
+                char c = descriptor.charAt(i);
+                arguments += c == 'D' || c == 'J' ? 2 : 1;
+                if (c == 'L') {
+                    i = descriptor.indexOf(';', i);
+                } else if (c == '[') {
+                    while (descriptor.charAt(i) == '[') {
+                        i++;
+                    }
+                    if (descriptor.charAt(i) == 'L') {
+                        i = descriptor.indexOf(';', i);
+                    }
+                }
+            }
+            if (opcode == INVOKEINTERFACE) {
+                write(arguments + 1);
+                write(0);
+            }
+            int receiver = opcode == INVOKESTATIC ? 0 : 1;
+            adjust(size(descriptor.substring(end + 1)) - arguments - receiver);
+        }
+
+        /**
+         * Writes a jump, which pops the operands of its comparison.
+         */
+        void jump(int opcode, Label label) {
+            adjust(opcode == GOTO ? 0 : opcode >= IF_ICMPEQ ? -2 : -1);
+            label.jumps.add(length);
+            label.stack = stack;
+            write(opcode);
+            u2(0);
+            if (label.position >= 0) {
+                patch(label, length - 3);
+            }
+        }
+
+        /**
+         * Places the label at the next instruction. The stack there is the
+         * depth at the jumps to it, which is only different after a
+         * {@code GOTO} or return.
+         */
+        void label(Label label) {
+            label.position = length;
+            if (label.stack >= 0) {
+                stack = label.stack;
+            }
+            for (int jump : label.jumps) {
+                patch(label, jump);
+            }
+        }
+
+        private void patch(Label label, int jump) {
+            int offset = label.position - jump;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("The method " + name + " is too large for a class file.");
+            }
+            code[jump + 1] = (byte) (offset >> 8);
+            code[jump + 2] = (byte) offset;
+        }
+
+        private void adjust(int effect) {
+            stack += effect;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void write(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, 2 * length);
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            write(value >> 8);
+            write(value);
+        }
+
+        private byte[] toByteArray() {
+            byte[] bytes = Arrays.copyOf(code, length);
+            if (bytes.length > 0xFFFF || maxStack > 0xFFFF || maxLocals > 0xFFFF) {
+                throw new RuntimeException("The method " + name + " is too large for a class file.");
+            }
+            ByteArrayOutputStream method = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(method);
+            try {
+                out.writeShort(access);
+                out.writeShort(owner.utf8(name));
+                out.writeShort(owner.utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(owner.utf8("Code"));
+                out.writeInt(12 + bytes.length);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeShort(0);
+                out.writeShort(0);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return method.toByteArray();
+        }
+
+        /**
+         * Returns the number of stack slots for a value of the type, which is
+         * 0 for {@code V}.
+         */
+        static int size(String descriptor) {
+            switch (descriptor.charAt(0)) {
+                case 'V': return 0;
+                case 'D':
+                case 'J': return 2;
+                default: return 1;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,940 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+
+/**
+ * An alternative to the {@link Interpreter} which compiles the AST once into
+ * a tree of {@link Code} and then runs that, instead of dispatching on AST
+ * types and operator names every time a node is evaluated. Compiling
+ * resolves:
+ *
+ *  - binary operators to their functions (see {@link
+ *    Interpreter#operator(String)}),
+ *  - parameters and local variables to slots in an array for each call,
+ *  - other variables to their {@link Environment.Variable}, and
+ *  - functions to their {@link Environment.Function}, or directly to the
+ *    compiled code for methods of the source.
+ *
+ * Variables and functions which are not defined when compiling are looked up
+ * by name when evaluated, as in the interpreter. Fields, methods, and
+ * declarations outside of methods are defined in {@link #getScope()} when
+ * compiled, and given their values when run.
+ *
+ * Results are the same as the interpreter's for programs that pass the {@link
+ * Analyzer}. Otherwise there are two differences: names in a method are
+ * resolved through the scope the method was defined in (the interpreter uses
+ * the scope of its caller), and {@code IF} conditions are evaluated once
+ * instead of twice.
+ */
+public final class ClosureCompiler implements Ast.Visitor<ClosureCompiler.Code>, Ast.IterativeVisitor<ClosureCompiler.Code> {
+
+    /**
+     * Expressions taller than this are evaluated with explicit stacks (see
+     * {@link Iterative}) so they cannot overflow the call stack, while shorter
+     * ones recursively evaluate their operands.
+     */
+    private static final int MAX_HEIGHT = 512;
+
+    private static final Code NOTHING = new Constant(null);
+
+    private final Scope scope;
+    private final Map<Ast.Method, Method> declared = new IdentityHashMap<>();
+    private final Map<Environment.Function, Method> methods = new IdentityHashMap<>();
+
+    // blocks of local variables being compiled, innermost last, which are
+    // empty outside of methods and blocks so declarations there are global
+    private List<Map<String, Integer>> blocks = new ArrayList<>();
+    private int slots = 0;
+    private int frameSize = 0;
+
+    public ClosureCompiler(Scope parent) {
+        scope = new Scope(parent);
+        Environment.definePrint(scope);
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles the AST into a program which can be run any number of times,
+     * defining its fields and methods in the scope.
+     */
+    public Program compile(Ast ast) {
+        blocks = new ArrayList<>();
+        slots = 0;
+        frameSize = 0;
+        Code code = ast instanceof Ast.Expr ? expression((Ast.Expr) ast) : visit(ast);
+        return new Program(code, frameSize);
+    }
+
+    /**
+     * Compiles a method on its own, defining it in the scope, and returns the
+     * function calling it. Other names are resolved through the parent scope,
+     * which is how the {@link Interpreter} promotes methods once they are hot.
+     */
+    java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> compileMethod(Ast.Method ast) {
+        blocks = new ArrayList<>();
+        slots = 0;
+        frameSize = 0;
+        visit(ast);
+        return scope.lookupFunction(ast.getName(), ast.getParameters().size())::invoke;
+    }
+
+    @Override
+    public Code visit(Ast.Source ast) {
+        for (Ast.Method method : ast.getMethods()) { // so calls to later methods are resolved
+            declare(method);
+        }
+        Code[] fields = new Code[ast.getFields().size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = visit(ast.getFields().get(i));
+        }
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return new Main(new Block(fields), call("main", new Code[0]));
+    }
+
+    @Override
+    public Code visit(Ast.Field ast) {
+        Code value = ast.getValue().isPresent() ? expression(ast.getValue().get()) : new Constant(Environment.NIL);
+        Environment.Variable variable = scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, Environment.NIL);
+        return new SetGlobal(variable, scope, ast.getName(), value);
+    }
+
+    @Override
+    public Code visit(Ast.Method ast) {
+        Method method = declared.containsKey(ast) ? declared.get(ast) : declare(ast);
+        List<Map<String, Integer>> enclosing = blocks;
+        int enclosingSlots = slots;
+        int enclosingFrameSize = frameSize;
+        try {
+            blocks = new ArrayList<>();
+            slots = 0;
+            frameSize = 0;
+            blocks.add(new HashMap<>());
+            for (String parameter : ast.getParameters()) {
+                declare(parameter);
+            }
+            Code[] statements = new Code[ast.getStatements().size()];
+            for (int i = 0; i < statements.length; i++) {
+                statements[i] = visit(ast.getStatements().get(i));
+            }
+            method.body = new Block(statements);
+            method.frameSize = frameSize;
+        } finally {
+            blocks = enclosing;
+            slots = enclosingSlots;
+            frameSize = enclosingFrameSize;
+        }
+        return NOTHING;
+    }
+
+    /**
+     * Defines the function for a method, whose body is compiled later.
+     */
+    private Method declare(Ast.Method ast) {
+        Method method = new Method(ast.getParameters().size());
+        scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
+            Environment.PlcObject[] frame = new Environment.PlcObject[method.frameSize];
+            for (int i = 0; i < args.size(); i++) {
+                frame[i] = args.get(i);
+            }
+            return method.invoke(frame);
+        });
+        declared.put(ast, method);
+        methods.put(scope.lookupFunction(ast.getName(), ast.getParameters().size()), method);
+        return method;
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.Expression ast) {
+        return new Evaluate(expression(ast.getExpression()));
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.Declaration ast) {
+        Code value = ast.getValue().isPresent() ? expression(ast.getValue().get()) : new Constant(Environment.NIL);
+        if (blocks.isEmpty()) {
+            Environment.Variable variable = scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, Environment.NIL);
+            return new SetGlobal(variable, scope, ast.getName(), value);
+        }
+        return new SetLocal(declare(ast.getName()), value);
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            return NOTHING; // as in the interpreter
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        if (access.getReceiver().isPresent()) {
+            return new SetField(expression(access.getReceiver().get()), access.getName(), expression(ast.getValue()));
+        }
+        Integer slot = lookup(access.getName());
+        if (slot != null) {
+            return new SetLocal(slot, expression(ast.getValue()));
+        }
+        return new SetGlobal(global(access.getName()), scope, access.getName(), expression(ast.getValue()));
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.If ast) {
+        return new If(expression(ast.getCondition()), block(ast.getThenStatements()), block(ast.getElseStatements()));
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.For ast) {
+        Code value = expression(ast.getValue());
+        blocks.add(new HashMap<>());
+        try {
+            int slot = declare(ast.getName());
+            return new For(slot, value, block(ast.getStatements()));
+        } finally {
+            pop();
+        }
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.While ast) {
+        return new While(expression(ast.getCondition()), block(ast.getStatements()));
+    }
+
+    @Override
+    public Code visit(Ast.Stmt.Return ast) {
+        return new Return(expression(ast.getValue()));
+    }
+
+    private Block block(List<Ast.Stmt> statements) {
+        blocks.add(new HashMap<>());
+        try {
+            Code[] code = new Code[statements.size()];
+            for (int i = 0; i < code.length; i++) {
+                code[i] = visit(statements.get(i));
+            }
+            return new Block(code);
+        } finally {
+            pop();
+        }
+    }
+
+    private void pop() {
+        slots -= blocks.remove(blocks.size() - 1).size();
+    }
+
+    /**
+     * Assigns the next slot of the frame to a local variable.
+     */
+    private int declare(String name) {
+        Map<String, Integer> block = blocks.get(blocks.size() - 1);
+        if (block.containsKey(name)) {
+            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+        }
+        block.put(name, slots);
+        frameSize = Math.max(frameSize, ++slots);
+        return slots - 1;
+    }
+
+    /**
+     * Returns the slot of a local variable, or null if it is not local.
+     */
+    private Integer lookup(String name) {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Integer slot = blocks.get(i).get(name);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the variable if it is defined, or null to look it up by name
+     * when evaluated.
+     */
+    private Environment.Variable global(String name) {
+        try {
+            return scope.lookupVariable(name);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Code call(String name, Code[] arguments) {
+        Environment.Function function;
+        try {
+            function = scope.lookupFunction(name, arguments.length);
+        } catch (RuntimeException e) {
+            function = null; // looked up by name when evaluated
+        }
+        Method method = function != null ? methods.get(function) : null;
+        if (method != null) {
+            return new DirectCall(method, arguments);
+        }
+        return new Call(function, scope, name, arguments);
+    }
+
+    /**
+     * Compiles an expression, which is evaluated with explicit stacks if it
+     * is too tall to evaluate recursively.
+     */
+    private Code expression(Ast.Expr ast) {
+        Code code = visit(ast);
+        return code.height > MAX_HEIGHT ? new Iterative((Composite) code) : code;
+    }
+
+    @Override
+    public Code visit(Ast.Expr.Literal ast) {
+        return new Constant(ast.getLiteral() == null ? Environment.NIL : Environment.create(ast.getLiteral()));
+    }
+
+    @Override
+    public Code visit(Ast.Expr.Group ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Code visit(Ast.Expr.Binary ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Code visit(Ast.Expr.Access ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Code visit(Ast.Expr.Function ast) {
+        return evaluate(ast);
+    }
+
+    /**
+     * Compiles each subexpression in the order it is evaluated, with the
+     * arguments of a method call before its receiver.
+     */
+    @Override
+    public Ast.Expr next(Ast.Expr ast, List<Code> results) {
+        int visited = results.size();
+        if (ast instanceof Ast.Expr.Group) {
+            return visited == 0 ? ((Ast.Expr.Group) ast).getExpression() : null;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            if (visited == 0) {
+                return ((Ast.Expr.Binary) ast).getLeft();
+            }
+            return visited == 1 ? ((Ast.Expr.Binary) ast).getRight() : null;
+        } else if (ast instanceof Ast.Expr.Access) {
+            Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+            return visited == 0 && receiver.isPresent() ? receiver.get() : null;
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            List<Ast.Expr> arguments = function.getArguments();
+            if (visited < arguments.size()) {
+                return arguments.get(visited);
+            }
+            return visited == arguments.size() && function.getReceiver().isPresent() ? function.getReceiver().get() : null;
+        }
+        return null;
+    }
+
+    @Override
+    public Code finish(Ast.Expr ast, List<Code> results) {
+        if (ast instanceof Ast.Expr.Literal) {
+            return visit((Ast.Expr.Literal) ast);
+        } else if (ast instanceof Ast.Expr.Group) {
+            return results.get(0);
+        } else if (ast instanceof Ast.Expr.Binary) {
+            String operator = ((Ast.Expr.Binary) ast).getOperator();
+            Boolean decisive = operator.equals("AND") ? Boolean.FALSE : operator.equals("OR") ? Boolean.TRUE : null;
+            return new Binary(Interpreter.operator(operator), decisive, results.get(0), results.get(1));
+        } else if (ast instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) ast;
+            if (access.getReceiver().isPresent()) {
+                return new GetField(results.get(0), access.getName());
+            }
+            Integer slot = lookup(access.getName());
+            return slot != null ? new GetLocal(slot) : new GetGlobal(global(access.getName()), scope, access.getName());
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            Code[] operands = results.toArray(new Code[0]);
+            if (function.getReceiver().isPresent()) {
+                return new MethodCall(function.getName(), operands);
+            }
+            return call(function.getName(), operands);
+        }
+        throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+    }
+
+    /**
+     * A compiled program and the size of the frame for its code outside of
+     * methods.
+     */
+    public static final class Program {
+
+        private final Code code;
+        private final int frameSize;
+
+        private Program(Code code, int frameSize) {
+            this.code = code;
+            this.frameSize = frameSize;
+        }
+
+        /**
+         * Runs the program, returning the value of an expression, the result
+         * of main for a source, or {@link Environment#NIL} otherwise.
+         */
+        public Environment.PlcObject run() {
+            Environment.PlcObject result = execute();
+            return result != null ? result : Environment.NIL;
+        }
+
+        /**
+         * Runs the program, returning the value of a {@code RETURN} which
+         * ended it, or {@code null} if there wasn't one.
+         */
+        Environment.PlcObject execute() {
+            return code.execute(new Environment.PlcObject[frameSize]);
+        }
+
+    }
+
+    /**
+     * Compiled code for an AST. Expressions return their value, and statements
+     * return {@code null} or the value of a {@code RETURN}, which ends the
+     * method it is in.
+     */
+    public abstract static class Code {
+
+        /**
+         * The height of an expression, which is 1 for leaves.
+         */
+        final int height;
+
+        private Code(int height) {
+            this.height = height;
+        }
+
+        abstract Environment.PlcObject execute(Environment.PlcObject[] frame);
+
+    }
+
+    /**
+     * The compiled body of a method, which is invoked with a frame holding its
+     * arguments in the first slots.
+     */
+    private static final class Method {
+
+        private int frameSize; // at least the number of parameters
+        private Code body;
+
+        private Method(int arity) {
+            this.frameSize = arity;
+        }
+
+        private Environment.PlcObject invoke(Environment.PlcObject[] frame) {
+            Environment.PlcObject result = body.execute(frame);
+            return result != null ? result : Environment.NIL;
+        }
+
+    }
+
+    private static final class Constant extends Code {
+
+        private final Environment.PlcObject value;
+
+        private Constant(Environment.PlcObject value) {
+            super(1);
+            this.value = value;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return value;
+        }
+
+    }
+
+    private static final class GetLocal extends Code {
+
+        private final int slot;
+
+        private GetLocal(int slot) {
+            super(1);
+            this.slot = slot;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return frame[slot];
+        }
+
+    }
+
+    /**
+     * Reads a variable resolved when compiling, or looks it up by name if it
+     * wasn't defined then.
+     */
+    private static final class GetGlobal extends Code {
+
+        private final Environment.Variable variable;
+        private final Scope scope;
+        private final String name;
+
+        private GetGlobal(Environment.Variable variable, Scope scope, String name) {
+            super(1);
+            this.variable = variable;
+            this.scope = scope;
+            this.name = name;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return (variable != null ? variable : scope.lookupVariable(name)).getValue();
+        }
+
+    }
+
+    /**
+     * An expression with subexpressions (its operands), which can be
+     * evaluated either recursively by {@link #execute(Environment.PlcObject[])}
+     * or one operand at a time by {@link Iterative}.
+     */
+    private abstract static class Composite extends Code {
+
+        final Code[] operands;
+
+        private Composite(Code... operands) {
+            super(1 + Arrays.stream(operands).mapToInt(operand -> operand.height).max().orElse(0));
+            this.operands = operands;
+        }
+
+        /**
+         * Returns true if the next operand should be evaluated, given the
+         * values of the operands evaluated so far.
+         */
+        boolean hasNext(Environment.PlcObject[] values, int count) {
+            return count < operands.length;
+        }
+
+        abstract Environment.PlcObject combine(Environment.PlcObject[] values, int count);
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Environment.PlcObject[] values = new Environment.PlcObject[operands.length];
+            int count = 0;
+            while (hasNext(values, count)) {
+                values[count] = operands[count].execute(frame);
+                count++;
+            }
+            return combine(values, count);
+        }
+
+    }
+
+    /**
+     * A binary operator, where {@code decisive} is the value of the left
+     * operand which decides the result of {@code AND} or {@code OR} without
+     * evaluating the right one.
+     */
+    private static final class Binary extends Composite {
+
+        private final BinaryOperator<Environment.PlcObject> operator;
+        private final Boolean decisive;
+
+        private Binary(BinaryOperator<Environment.PlcObject> operator, Boolean decisive, Code left, Code right) {
+            super(left, right);
+            this.operator = operator;
+            this.decisive = decisive;
+        }
+
+        @Override
+        boolean hasNext(Environment.PlcObject[] values, int count) {
+            return count == 0 || count == 1 && (decisive == null || !decisive.equals(values[0].getValue()));
+        }
+
+        @Override
+        Environment.PlcObject combine(Environment.PlcObject[] values, int count) {
+            return operator.apply(values[0], count > 1 ? values[1] : null);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Environment.PlcObject left = operands[0].execute(frame);
+            if (decisive != null && decisive.equals(left.getValue())) {
+                return operator.apply(left, null);
+            }
+            return operator.apply(left, operands[1].execute(frame));
+        }
+
+    }
+
+    private static final class GetField extends Composite {
+
+        private final String name;
+
+        private GetField(Code receiver, String name) {
+            super(receiver);
+            this.name = name;
+        }
+
+        @Override
+        Environment.PlcObject combine(Environment.PlcObject[] values, int count) {
+            return values[0].getField(name).getValue();
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return operands[0].execute(frame).getField(name).getValue();
+        }
+
+    }
+
+    /**
+     * Calls a method of the source, evaluating the arguments directly into
+     * the frame of the call.
+     */
+    private static final class DirectCall extends Composite {
+
+        private final Method method;
+
+        private DirectCall(Method method, Code[] arguments) {
+            super(arguments);
+            this.method = method;
+        }
+
+        @Override
+        Environment.PlcObject combine(Environment.PlcObject[] values, int count) {
+            Environment.PlcObject[] frame = new Environment.PlcObject[method.frameSize];
+            System.arraycopy(values, 0, frame, 0, count);
+            return method.invoke(frame);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Environment.PlcObject[] callee = new Environment.PlcObject[method.frameSize];
+            for (int i = 0; i < operands.length; i++) {
+                callee[i] = operands[i].execute(frame);
+            }
+            return method.invoke(callee);
+        }
+
+    }
+
+    /**
+     * Calls a function resolved when compiling, or looks it up by name if it
+     * wasn't defined then.
+     */
+    private static final class Call extends Composite {
+
+        private final Environment.Function function;
+        private final Scope scope;
+        private final String name;
+
+        private Call(Environment.Function function, Scope scope, String name, Code[] arguments) {
+            super(arguments);
+            this.function = function;
+            this.scope = scope;
+            this.name = name;
+        }
+
+        @Override
+        Environment.PlcObject combine(Environment.PlcObject[] values, int count) {
+            return (function != null ? function : scope.lookupFunction(name, count)).invoke(Arrays.asList(values));
+        }
+
+    }
+
+    /**
+     * Calls a method of the receiver, which is the last operand.
+     */
+    private static final class MethodCall extends Composite {
+
+        private final String name;
+
+        private MethodCall(String name, Code[] operands) {
+            super(operands);
+            this.name = name;
+        }
+
+        @Override
+        Environment.PlcObject combine(Environment.PlcObject[] values, int count) {
+            return values[count - 1].callMethod(name, Arrays.asList(values).subList(0, count - 1));
+        }
+
+    }
+
+    /**
+     * Evaluates a tall expression with explicit stacks of the composite
+     * expressions being evaluated and the values of their operands so far.
+     * Leaves are still evaluated directly.
+     */
+    private static final class Iterative extends Code {
+
+        private final Composite root;
+
+        private Iterative(Composite root) {
+            super(1);
+            this.root = root;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            List<Composite> expressions = new ArrayList<>();
+            List<Environment.PlcObject[]> values = new ArrayList<>();
+            int[] counts = new int[16];
+            expressions.add(root);
+            values.add(new Environment.PlcObject[root.operands.length]);
+            while (true) {
+                int top = expressions.size() - 1;
+                Composite expression = expressions.get(top);
+                Environment.PlcObject[] operands = values.get(top);
+                if (expression.hasNext(operands, counts[top])) {
+                    Code operand = expression.operands[counts[top]];
+                    if (operand instanceof Composite) {
+                        if (top + 1 == counts.length) {
+                            counts = Arrays.copyOf(counts, 2 * counts.length);
+                        }
+                        counts[top + 1] = 0;
+                        expressions.add((Composite) operand);
+                        values.add(new Environment.PlcObject[((Composite) operand).operands.length]);
+                    } else {
+                        operands[counts[top]++] = operand.execute(frame);
+                    }
+                } else {
+                    Environment.PlcObject result = expression.combine(operands, counts[top]);
+                    expressions.remove(top);
+                    values.remove(top);
+                    if (top == 0) {
+                        return result;
+                    }
+                    values.get(top - 1)[counts[top - 1]++] = result;
+                }
+            }
+        }
+
+    }
+
+    private static final class Evaluate extends Code {
+
+        private final Code expression;
+
+        private Evaluate(Code expression) {
+            super(1);
+            this.expression = expression;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            expression.execute(frame);
+            return null;
+        }
+
+    }
+
+    private static final class SetLocal extends Code {
+
+        private final int slot;
+        private final Code value;
+
+        private SetLocal(int slot, Code value) {
+            super(1);
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            frame[slot] = value.execute(frame);
+            return null;
+        }
+
+    }
+
+    private static final class SetGlobal extends Code {
+
+        private final Environment.Variable variable;
+        private final Scope scope;
+        private final String name;
+        private final Code value;
+
+        private SetGlobal(Environment.Variable variable, Scope scope, String name, Code value) {
+            super(1);
+            this.variable = variable;
+            this.scope = scope;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Environment.Variable variable = this.variable != null ? this.variable : scope.lookupVariable(name);
+            variable.setValue(value.execute(frame));
+            return null;
+        }
+
+    }
+
+    private static final class SetField extends Code {
+
+        private final Code receiver;
+        private final String name;
+        private final Code value;
+
+        private SetField(Code receiver, String name, Code value) {
+            super(1);
+            this.receiver = receiver;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            receiver.execute(frame).setField(name, value.execute(frame));
+            return null;
+        }
+
+    }
+
+    private static final class Block extends Code {
+
+        private final Code[] statements;
+
+        private Block(Code[] statements) {
+            super(1);
+            this.statements = statements;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            for (Code statement : statements) {
+                Environment.PlcObject result = statement.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static final class If extends Code {
+
+        private final Code condition;
+        private final Block thenStatements;
+        private final Block elseStatements;
+
+        private If(Code condition, Block thenStatements, Block elseStatements) {
+            super(1);
+            this.condition = condition;
+            this.thenStatements = thenStatements;
+            this.elseStatements = elseStatements;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            if (Interpreter.requireType(Boolean.class, condition.execute(frame))) {
+                return thenStatements.execute(frame);
+            }
+            return elseStatements.execute(frame);
+        }
+
+    }
+
+    private static final class For extends Code {
+
+        private final int slot;
+        private final Code value;
+        private final Block statements;
+
+        private For(int slot, Code value, Block statements) {
+            super(1);
+            this.slot = slot;
+            this.value = value;
+            this.statements = statements;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            for (Environment.PlcObject element : (Iterable<Environment.PlcObject>) Interpreter.requireType(Iterable.class, value.execute(frame))) {
+                frame[slot] = element;
+                Environment.PlcObject result = statements.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static final class While extends Code {
+
+        private final Code condition;
+        private final Block statements;
+
+        private While(Code condition, Block statements) {
+            super(1);
+            this.condition = condition;
+            this.statements = statements;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            while (Interpreter.requireType(Boolean.class, condition.execute(frame))) {
+                Environment.PlcObject result = statements.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static final class Return extends Code {
+
+        private final Code value;
+
+        private Return(Code value) {
+            super(1);
+            this.value = value;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return value.execute(frame);
+        }
+
+    }
+
+    /**
+     * Gives the fields their values, then calls main.
+     */
+    private static final class Main extends Code {
+
+        private final Block fields;
+        private final Code main;
+
+        private Main(Block fields, Code main) {
+            super(1);
+            this.fields = fields;
+            this.main = main;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            fields.execute(frame);
+            return main.execute(frame);
+        }
+
+    }
+
+}
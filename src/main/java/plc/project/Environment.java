@@ -37,6 +37,17 @@ public final class Environment {
         return new PlcObject(new Scope(null), value);
     }
 
+    /**
+     * Defines the {@code print} builtin in the scope, which is shared by the
+     * interpreter and each of the compilers.
+     */
+    public static void definePrint(Scope scope) {
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return NIL;
+        });
+    }
+
     public static final class Type {
 
         public static final Type ANY = new Type("Any", "Object", new Scope(null));
@@ -4,8 +4,9 @@ import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Optional;
 
-public final class Generator implements Ast.Visitor<Void> {
+public final class Generator implements Ast.Visitor<Void>, Ast.IterativeVisitor<Void> {
 
     private final PrintWriter writer;
     private int indent = 0;
@@ -241,11 +242,11 @@ public final class Generator implements Ast.Visitor<Void> {
         } else if (ast.getType() == Environment.Type.STRING) {
             // IS STRING
             String loc = (String) ast.getLiteral();
-            print("\"", loc, "\"");
+            print("\"", escape(loc), "\"");
         } else if (ast.getType() == Environment.Type.CHARACTER) {
             // IS CHARACTER
             char loc = (char) ast.getLiteral();
-            print("'", loc, "'");
+            print("'", escape(String.valueOf(loc)), "'");
         } else if (ast.getType() == Environment.Type.DECIMAL) {
             // IS DECIMAL
             // TODO: check for decimal precision
@@ -259,15 +260,104 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expr.Group ast) {
-        writer.write("(");
-        print(ast.getExpression());
-        writer.write(")");
-        return null;
+        return evaluate(ast);
     }
 
     @Override
     public Void visit(Ast.Expr.Binary ast) {
-        visit(ast.getLeft());
+        return evaluate(ast);
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        return evaluate(ast);
+    }
+
+    /**
+     * Prints whatever comes before the next subexpression, such as opening
+     * parentheses and operators, and returns it.
+     */
+    @Override
+    public Ast.Expr next(Ast.Expr ast, List<Void> results) {
+        int visited = results.size();
+        if (ast instanceof Ast.Expr.Group) {
+            if (visited == 0) {
+                writer.write("(");
+                return ((Ast.Expr.Group) ast).getExpression();
+            }
+        } else if (ast instanceof Ast.Expr.Binary) {
+            if (visited == 0) {
+                return ((Ast.Expr.Binary) ast).getLeft();
+            } else if (visited == 1) {
+                operator((Ast.Expr.Binary) ast);
+                return ((Ast.Expr.Binary) ast).getRight();
+            }
+        } else if (ast instanceof Ast.Expr.Access) {
+            Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+            if (visited == 0 && receiver.isPresent()) {
+                // HAS RECEIVER
+                return receiver.get();
+            }
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            if (visited == 0 && function.getReceiver().isPresent()) {
+                // HAS RECEIVER
+                return function.getReceiver().get();
+            }
+            int argument = visited - (function.getReceiver().isPresent() ? 1 : 0);
+            if (argument == 0) {
+                if (function.getReceiver().isPresent()) {
+                    print(".");
+                }
+                print(function.getFunction().getJvmName(), "(");
+            } else if (argument < function.getArguments().size()) {
+                print(", ");
+            }
+            if (argument < function.getArguments().size()) {
+                return function.getArguments().get(argument);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void finish(Ast.Expr ast, List<Void> results) {
+        if (ast instanceof Ast.Expr.Literal) {
+            return visit((Ast.Expr.Literal) ast);
+        } else if (ast instanceof Ast.Expr.Group || ast instanceof Ast.Expr.Function) {
+            writer.write(")");
+        } else if (ast instanceof Ast.Expr.Access) {
+            if (((Ast.Expr.Access) ast).getReceiver().isPresent()) {
+                print(".");
+            }
+            print(((Ast.Expr.Access) ast).getName());
+        }
+        return null;
+    }
+
+    /**
+     * Escapes the characters which have escape sequences, so the literal is
+     * the same in Java.
+     */
+    private static String escape(String literal) {
+        StringBuilder builder = new StringBuilder(literal.length());
+        for (char c : literal.toCharArray()) {
+            int index = "\b\n\r\t'\"\\".indexOf(c);
+            if (index >= 0) {
+                builder.append('\\').append("bnrt'\"\\".charAt(index));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void operator(Ast.Expr.Binary ast) {
         switch (ast.getOperator()) {
             case "AND":
                 print(" && ");
@@ -291,45 +381,6 @@ public final class Generator implements Ast.Visitor<Void> {
                 print(" ", ast.getOperator(), " ");
                 break;
         }
-        visit(ast.getRight());
-        return null;
-    }
-
-    @Override
-    public Void visit(Ast.Expr.Access ast) {
-        if (ast.getReceiver().isPresent()) {
-            // HAS RECEIVER
-            print(ast.getReceiver().get());
-            print(".");
-        }
-
-        print(ast.getName());
-        return null;
-    }
-
-    @Override
-    public Void visit(Ast.Expr.Function ast) {
-        Environment.Function func = ast.getFunction();
-        if (ast.getReceiver().isPresent()) {
-            // HAS RECEIVER
-            print(ast.getReceiver().get());
-            print(".");
-        }
-
-        print(func.getJvmName(), "(");
-        // print out arguments
-        List<Ast.Expr> args = ast.getArguments();
-        if (args.size() > 0) {
-            // HAS ARGUMENTS
-            for (int i = 0; i < args.size() - 1; i++) {
-                visit(args.get(i));
-                print(", ");
-            }
-            print(args.get(args.size() - 1));
-        }
-        print(")");
-
-        return null;
     }
 
 }
@@ -7,18 +7,30 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
-public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
+public class Interpreter implements Ast.Visitor<Environment.PlcObject>, Ast.IterativeVisitor<Environment.PlcObject> {
 
     private Scope scope = new Scope(null);
+    private final Tiering tiering;
+    private Profile profile; // of the method being interpreted, if tiering
 
     public Interpreter(Scope parent) {
+        this(parent, null);
+    }
+
+    /**
+     * Creates an interpreter which compiles methods with the {@link
+     * ClosureCompiler} once they are hot, as configured by the tiering, or
+     * never if it is {@code null}.
+     */
+    public Interpreter(Scope parent, Tiering tiering) {
+        this.tiering = tiering;
         scope = new Scope(parent);
-        scope.defineFunction("print", 1, args -> {
-            System.out.println(args.get(0).getValue());
-            return Environment.NIL;
-        });
+        Environment.definePrint(scope);
     }
 
     public Scope getScope() {
@@ -49,24 +61,30 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Method ast) { // defines function in current scope
-        scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
-            try {
-                scope = new Scope(scope);
-                for(int i = 0; i < args.size(); i++) { // define arguments
-                    scope.defineVariable(ast.getParameters().get(i), args.get(i));
-                }
-                for(Ast.Stmt stmt : ast.getStatements()) { // evaluate statements
-                    visit(stmt);
-                }
-            }
-            catch(Return r) {
-                return r.value;
+        if (tiering != null) {
+            scope.defineFunction(ast.getName(), ast.getParameters().size(), new Profile(ast, scope)::invoke);
+        } else {
+            scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> interpret(ast, args));
+        }
+        return Environment.NIL;
+    }
+
+    private Environment.PlcObject interpret(Ast.Method ast, List<Environment.PlcObject> args) {
+        try {
+            scope = new Scope(scope);
+            for(int i = 0; i < args.size(); i++) { // define arguments
+                scope.defineVariable(ast.getParameters().get(i), args.get(i));
             }
-            finally { // restore scope
-                scope = scope.getParent();
+            for(Ast.Stmt stmt : ast.getStatements()) { // evaluate statements
+                visit(stmt);
             }
-            return Environment.NIL;
-        });
+        }
+        catch(Return r) {
+            return r.value;
+        }
+        finally { // restore scope
+            scope = scope.getParent();
+        }
         return Environment.NIL;
     }
 
@@ -135,6 +153,9 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 } finally {
                     scope = scope.getParent();
                 }
+                if (profile != null) {
+                    profile.backEdge();
+                }
             });
         }
         return Environment.NIL;
@@ -149,6 +170,16 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             } finally { // restore scope
                 scope = scope.getParent();
             }
+            if (profile != null && profile.backEdge()) {
+                ClosureCompiler.Program loop = compileLoop(ast);
+                if (loop != null) {
+                    Environment.PlcObject result = loop.execute();
+                    if (result != null) {
+                        throw new Return(result);
+                    }
+                    break;
+                }
+            }
         }
         return Environment.NIL;
     }
@@ -172,216 +203,254 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Group ast) {
-        return visit(ast.getExpression());
+        return evaluate(ast);
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Binary ast) {
-        Environment.PlcObject left = visit(ast.getLeft());
-
-        switch (ast.getOperator()) {
-            case "+":
-                if(left.getValue() instanceof BigInteger) { // integer addition
-                    if(visit(ast.getRight()).getValue() instanceof BigInteger) {
-                        return Environment.create(
-                                requireType(BigInteger.class, left).add(requireType(BigInteger.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                if(left.getValue() instanceof BigDecimal) { // decimal addition
-                    if(visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                        return Environment.create(
-                                requireType(BigDecimal.class, left).add(requireType(BigDecimal.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                if(left.getValue() instanceof String) {
-                    if(visit(ast.getRight()).getValue() instanceof String) { // string concatenation
-                        return Environment.create(
-                                requireType(String.class, left) + requireType(String.class, visit(ast.getRight()))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                break;
-
-            case "-":
-                if(left.getValue() instanceof BigInteger) {
-                    if(visit(ast.getRight()).getValue() instanceof BigInteger) { // integer subtraction
-                        return Environment.create(
-                                requireType(BigInteger.class, left).subtract(requireType(BigInteger.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                if(left.getValue() instanceof BigDecimal) {
-                    if(visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                        return Environment.create(
-                                requireType(BigDecimal.class, left).subtract(requireType(BigDecimal.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                break;
-
-            case "*":
-                if(left.getValue() instanceof BigInteger) { // integer multiplication
-                    if(visit(ast.getRight()).getValue() instanceof BigInteger) {
-                        return Environment.create(
-                                requireType(BigInteger.class, left).multiply(requireType(BigInteger.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                if(left.getValue() instanceof BigDecimal) { // decimal multiplication
-                    if(visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                        return Environment.create(
-                                requireType(BigDecimal.class, left).multiply(requireType(BigDecimal.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                break;
-
-            case "/":
-                if(left.getValue() instanceof BigInteger) { // integer division
-                    if(visit(ast.getRight()).getValue() instanceof BigInteger) {
-                        if(((BigInteger) visit(ast.getRight()).getValue()).intValue() == 0) {
-                            throw new RuntimeException();
-                        }
-                        return Environment.create(
-                                requireType(BigInteger.class, left).divide(requireType(BigInteger.class, visit(ast.getRight())))
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                if(left.getValue() instanceof BigDecimal) { // decimal division
-                    if(visit(ast.getRight()).getValue() instanceof BigDecimal) {
-                        if(((BigDecimal) visit(ast.getRight()).getValue()).doubleValue() == 0) { // divide by 0 error
-                            throw new RuntimeException();
-                        }
-                        return Environment.create(
-                                requireType(BigDecimal.class, left).divide(requireType(BigDecimal.class, visit(ast.getRight())), RoundingMode.HALF_EVEN)
-                        );
-                    }
-                    throw new RuntimeException();
-                }
-                break;
+        return evaluate(ast);
+    }
 
-            case "AND":
-                if(left.getValue() instanceof Boolean && !(Boolean)left.getValue()) {
-                    return Environment.create(false);
-                }
-                if(visit(ast.getRight()).getValue() instanceof Boolean && !(Boolean)visit(ast.getRight()).getValue()) {
-                    return Environment.create(false);
-                }
-                if(left.getValue() instanceof Boolean) {
-                    if(visit(ast.getRight()).getValue() instanceof Boolean) {
-                        return Environment.create(true);
-                    }
-                    throw new RuntimeException();
-                }
-                break;
+    @Override
+    public Environment.PlcObject visit(Ast.Expr.Access ast) {
+        return evaluate(ast);
+    }
 
-            case "OR":
-                if(left.getValue() instanceof Boolean && (Boolean)left.getValue()) {
-                    return Environment.create(true);
-                }
-                if(visit(ast.getRight()).getValue() instanceof Boolean && (Boolean)visit(ast.getRight()).getValue()) {
-                    return Environment.create(true);
-                }
-                if(left.getValue() instanceof Boolean) {
-                    if(visit(ast.getRight()).getValue() instanceof Boolean) {
-                        return Environment.create(false);
-                    }
-                    throw new RuntimeException();
-                }
-                break;
+    @Override
+    public Environment.PlcObject visit(Ast.Expr.Function ast) {
+        return evaluate(ast);
+    }
 
-            case "==":
+    /**
+     * Evaluates each subexpression once, in order, except that arguments are
+     * evaluated before the receiver and the right operand of AND/OR is
+     * skipped when the left one decides the result.
+     */
+    @Override
+    public Ast.Expr next(Ast.Expr ast, List<Environment.PlcObject> results) {
+        int visited = results.size();
+        if (ast instanceof Ast.Expr.Group) {
+            return visited == 0 ? ((Ast.Expr.Group) ast).getExpression() : null;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            if (visited == 0) {
+                return binary.getLeft();
+            }
+            return visited == 1 && !shortCircuits(binary.getOperator(), results.get(0)) ? binary.getRight() : null;
+        } else if (ast instanceof Ast.Expr.Access) {
+            Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+            return visited == 0 && receiver.isPresent() ? receiver.get() : null;
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            List<Ast.Expr> arguments = function.getArguments();
+            if (visited < arguments.size()) {
+                return arguments.get(visited);
+            }
+            return visited == arguments.size() && function.getReceiver().isPresent() ? function.getReceiver().get() : null;
+        }
+        return null;
+    }
+
+    @Override
+    public Environment.PlcObject finish(Ast.Expr ast, List<Environment.PlcObject> results) {
+        if (ast instanceof Ast.Expr.Literal) {
+            return visit((Ast.Expr.Literal) ast);
+        } else if (ast instanceof Ast.Expr.Group) {
+            return results.get(0);
+        } else if (ast instanceof Ast.Expr.Binary) {
+            return operator(((Ast.Expr.Binary) ast).getOperator()).apply(results.get(0), results.size() > 1 ? results.get(1) : null);
+        } else if (ast instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) ast;
+            if (access.getReceiver().isPresent()) {
+                return results.get(0).getField(access.getName()).getValue();
+            }
+            return scope.lookupVariable(access.getName()).getValue();
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            int arguments = function.getArguments().size();
+            if (!function.getReceiver().isPresent()) {
+                // Is a function
+                return scope.lookupFunction(function.getName(), arguments).invoke(results);
+            }
+            // Is a Method
+            return results.get(arguments).callMethod(function.getName(), results.subList(0, arguments));
+        }
+        throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+    }
+
+    /**
+     * Returns true if the left operand alone decides the result of the
+     * operator, so the right operand is not evaluated.
+     */
+    static boolean shortCircuits(String operator, Environment.PlcObject left) {
+        return operator.equals("AND") && Boolean.FALSE.equals(left.getValue())
+                || operator.equals("OR") && Boolean.TRUE.equals(left.getValue());
+    }
+
+    /**
+     * Returns the function applying a binary operator, where the right operand
+     * is {@code null} if it was skipped by {@link #shortCircuits(String,
+     * Environment.PlcObject)}. Unknown operators and operand types evaluate to
+     * {@link Environment#NIL}. {@link ClosureCompiler} resolves each operator
+     * once when compiling instead of on every evaluation.
+     */
+    static BinaryOperator<Environment.PlcObject> operator(String operator) {
+        switch (operator) {
+            case "+": return Interpreter::add;
+            case "-": return Interpreter::subtract;
+            case "*": return Interpreter::multiply;
+            case "/": return Interpreter::divide;
+            case "AND": return Interpreter::and;
+            case "OR": return Interpreter::or;
+            case "==": return (left, right) -> Environment.create(Objects.equals(left.getValue(), right.getValue()));
+            case "!=": return (left, right) -> Environment.create(!Objects.equals(left.getValue(), right.getValue()));
+            case "<": return (left, right) -> compare(left, right, comparison -> comparison < 0);
+            case "<=": return (left, right) -> compare(left, right, comparison -> comparison <= 0);
+            case ">": return (left, right) -> compare(left, right, comparison -> comparison > 0);
+            case ">=": return (left, right) -> compare(left, right, comparison -> comparison >= 0);
+            default: return (left, right) -> Environment.NIL;
+        }
+    }
+
+    private static Environment.PlcObject add(Environment.PlcObject left, Environment.PlcObject right) {
+        if(left.getValue() instanceof BigInteger) { // integer addition
+            if(right.getValue() instanceof BigInteger) {
                 return Environment.create(
-                        Objects.equals(left.getValue(), visit(ast.getRight()).getValue())
+                        requireType(BigInteger.class, left).add(requireType(BigInteger.class, right))
                 );
-
-            case "!=":
+            }
+            throw new RuntimeException();
+        }
+        if(left.getValue() instanceof BigDecimal) { // decimal addition
+            if(right.getValue() instanceof BigDecimal) {
+                return Environment.create(
+                        requireType(BigDecimal.class, left).add(requireType(BigDecimal.class, right))
+                );
+            }
+            throw new RuntimeException();
+        }
+        if(left.getValue() instanceof String) {
+            if(right.getValue() instanceof String) { // string concatenation
                 return Environment.create(
-                        !Objects.equals(left.getValue(), visit(ast.getRight()).getValue())
+                        requireType(String.class, left) + requireType(String.class, right)
                 );
+            }
+            throw new RuntimeException();
+        }
+        return Environment.NIL;
+    }
 
-            case "<":
-                if(left.getValue() instanceof Comparable) {
-                    Environment.PlcObject right = visit(ast.getRight());
-                    if(requireType(left.getValue().getClass(), right) != null) {
-                        return Environment.create(((Comparable) left.getValue()).compareTo(right.getValue()) < 0);
-                    }
-                }
-                break;
+    private static Environment.PlcObject subtract(Environment.PlcObject left, Environment.PlcObject right) {
+        if(left.getValue() instanceof BigInteger) {
+            if(right.getValue() instanceof BigInteger) { // integer subtraction
+                return Environment.create(
+                        requireType(BigInteger.class, left).subtract(requireType(BigInteger.class, right))
+                );
+            }
+            throw new RuntimeException();
+        }
+        if(left.getValue() instanceof BigDecimal) {
+            if(right.getValue() instanceof BigDecimal) {
+                return Environment.create(
+                        requireType(BigDecimal.class, left).subtract(requireType(BigDecimal.class, right))
+                );
+            }
+            throw new RuntimeException();
+        }
+        return Environment.NIL;
+    }
 
-            case "<=":
-                if(left.getValue() instanceof Comparable) {
-                    Environment.PlcObject right = visit(ast.getRight());
-                    if(requireType(left.getValue().getClass(), right) != null) {
-                        return Environment.create(((Comparable) left.getValue()).compareTo(right.getValue()) <= 0);
-                    }
-                }
-                break;
+    private static Environment.PlcObject multiply(Environment.PlcObject left, Environment.PlcObject right) {
+        if(left.getValue() instanceof BigInteger) { // integer multiplication
+            if(right.getValue() instanceof BigInteger) {
+                return Environment.create(
+                        requireType(BigInteger.class, left).multiply(requireType(BigInteger.class, right))
+                );
+            }
+            throw new RuntimeException();
+        }
+        if(left.getValue() instanceof BigDecimal) { // decimal multiplication
+            if(right.getValue() instanceof BigDecimal) {
+                return Environment.create(
+                        requireType(BigDecimal.class, left).multiply(requireType(BigDecimal.class, right))
+                );
+            }
+            throw new RuntimeException();
+        }
+        return Environment.NIL;
+    }
 
-            case ">":
-                if(left.getValue() instanceof Comparable) {
-                    Environment.PlcObject right = visit(ast.getRight());
-                    if(requireType(left.getValue().getClass(), right) != null) {
-                        return Environment.create(((Comparable) left.getValue()).compareTo(right.getValue()) > 0);
-                    }
+    private static Environment.PlcObject divide(Environment.PlcObject left, Environment.PlcObject right) {
+        if(left.getValue() instanceof BigInteger) { // integer division
+            if(right.getValue() instanceof BigInteger) {
+                if(((BigInteger) right.getValue()).intValue() == 0) {
+                    throw new RuntimeException();
                 }
-                break;
-
-            case ">=":
-                if(left.getValue() instanceof Comparable) {
-                    Environment.PlcObject right = visit(ast.getRight());
-                    if(requireType(left.getValue().getClass(), right) != null) {
-                        return Environment.create(((Comparable) left.getValue()).compareTo(right.getValue()) >= 0);
-                    }
+                return Environment.create(
+                        requireType(BigInteger.class, left).divide(requireType(BigInteger.class, right))
+                );
+            }
+            throw new RuntimeException();
+        }
+        if(left.getValue() instanceof BigDecimal) { // decimal division
+            if(right.getValue() instanceof BigDecimal) {
+                if(((BigDecimal) right.getValue()).doubleValue() == 0) { // divide by 0 error
+                    throw new RuntimeException();
                 }
-                break;
+                return Environment.create(
+                        requireType(BigDecimal.class, left).divide(requireType(BigDecimal.class, right), RoundingMode.HALF_EVEN)
+                );
+            }
+            throw new RuntimeException();
         }
         return Environment.NIL;
     }
 
-    @Override
-    public Environment.PlcObject visit(Ast.Expr.Access ast) {
-
-        if(ast.getReceiver().isPresent()) {
-            return visit(ast.getReceiver().get()).getField(ast.getName()).getValue();
+    private static Environment.PlcObject and(Environment.PlcObject left, Environment.PlcObject right) {
+        if(left.getValue() instanceof Boolean && !(Boolean)left.getValue()) {
+            return Environment.create(false);
         }
-        return scope.lookupVariable(ast.getName()).getValue();
+        if(right.getValue() instanceof Boolean && !(Boolean)right.getValue()) {
+            return Environment.create(false);
+        }
+        if(left.getValue() instanceof Boolean) {
+            if(right.getValue() instanceof Boolean) {
+                return Environment.create(true);
+            }
+            throw new RuntimeException();
+        }
+        return Environment.NIL;
     }
 
-    @Override
-    public Environment.PlcObject visit(Ast.Expr.Function ast) {
-        // Convert args
-        List<Environment.PlcObject> arguments = new ArrayList<>();
-        for (Ast.Expr argument : ast.getArguments()) {
-            arguments.add(visit(argument));
+    private static Environment.PlcObject or(Environment.PlcObject left, Environment.PlcObject right) {
+        if(left.getValue() instanceof Boolean && (Boolean)left.getValue()) {
+            return Environment.create(true);
         }
-
-        if (!ast.getReceiver().isPresent()) {
-            // Is a function
-            Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
-            return function.invoke(arguments);
-        } else {
-            // Is a Method
-            Environment.PlcObject obj = visit(ast.getReceiver().get());
-            return obj.callMethod(ast.getName(), arguments);
+        if(right.getValue() instanceof Boolean && (Boolean)right.getValue()) {
+            return Environment.create(true);
+        }
+        if(left.getValue() instanceof Boolean) {
+            if(right.getValue() instanceof Boolean) {
+                return Environment.create(false);
+            }
+            throw new RuntimeException();
         }
+        return Environment.NIL;
+    }
 
+    private static Environment.PlcObject compare(Environment.PlcObject left, Environment.PlcObject right, IntPredicate test) {
+        if(left.getValue() instanceof Comparable) {
+            if(requireType(left.getValue().getClass(), right) != null) {
+                return Environment.create(test.test(((Comparable) left.getValue()).compareTo(right.getValue())));
+            }
+        }
+        return Environment.NIL;
     }
 
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
-    private static <T> T requireType(Class<T> type, Environment.PlcObject object) {
+    static <T> T requireType(Class<T> type, Environment.PlcObject object) {
         if (type.isInstance(object.getValue())) {
             return type.cast(object.getValue());
         } else {
@@ -389,6 +458,142 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         }
     }
 
+    /**
+     * Compiles a hot loop to continue from its condition, with the variables
+     * of the scope it is running in, or returns null if it can't be compiled.
+     * The program is only valid for the current call, since the variables are
+     * resolved when compiling.
+     */
+    private ClosureCompiler.Program compileLoop(Ast.Stmt.While ast) {
+        try {
+            ClosureCompiler.Program loop = new ClosureCompiler(scope).compile(ast);
+            tiering.loops++;
+            return loop;
+        } catch (RuntimeException e) {
+            return null; // the loop keeps being interpreted
+        }
+    }
+
+    /**
+     * When an {@link Interpreter} compiles methods with the {@link
+     * ClosureCompiler}: once a method has been called {@code invocations}
+     * times, or its loops have run {@code backEdges} iterations in total, in
+     * which case the loop which crossed the threshold also continues compiled.
+     * Calls which are already running when their method is promoted finish
+     * interpreted. Also counts the methods promoted and loops compiled.
+     *
+     * As with the {@link ClosureCompiler}, compiled methods resolve names
+     * through the scope they were defined in and evaluate {@code IF}
+     * conditions once, which only differs for sources that don't pass the
+     * {@link Analyzer}. {@code FOR} loops are counted but not compiled.
+     */
+    public static final class Tiering {
+
+        public static final int INVOCATIONS = 100;
+        public static final int BACK_EDGES = 1_000;
+
+        private final int invocations;
+        private final int backEdges;
+        private int promoted = 0;
+        private int loops = 0;
+
+        public Tiering() {
+            this(INVOCATIONS, BACK_EDGES);
+        }
+
+        public Tiering(int invocations, int backEdges) {
+            if (invocations < 1 || backEdges < 1) {
+                throw new IllegalArgumentException("Expected positive thresholds, received " + invocations + " and " + backEdges + ".");
+            }
+            this.invocations = invocations;
+            this.backEdges = backEdges;
+        }
+
+        public int getInvocationThreshold() {
+            return invocations;
+        }
+
+        public int getBackEdgeThreshold() {
+            return backEdges;
+        }
+
+        /**
+         * Returns the number of methods compiled and called instead of being
+         * interpreted.
+         */
+        public int getPromoted() {
+            return promoted;
+        }
+
+        /**
+         * Returns the number of loops which continued compiled while running.
+         */
+        public int getLoops() {
+            return loops;
+        }
+
+    }
+
+    /**
+     * Counts the calls of a method and iterations of its loops, and calls the
+     * compiled method instead of interpreting it once it is promoted.
+     */
+    private final class Profile {
+
+        private final Ast.Method ast;
+        private final Scope scope;
+        private int invocations = 0;
+        private int backEdges = 0;
+        private java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> compiled;
+
+        private Profile(Ast.Method ast, Scope scope) {
+            this.ast = ast;
+            this.scope = scope;
+        }
+
+        private Environment.PlcObject invoke(List<Environment.PlcObject> args) {
+            if (compiled == null && ++invocations == tiering.invocations) {
+                promote();
+            }
+            if (compiled != null) {
+                return compiled.apply(args);
+            }
+            Profile enclosing = profile;
+            try {
+                profile = this;
+                return interpret(ast, args);
+            } finally {
+                profile = enclosing;
+            }
+        }
+
+        /**
+         * Counts an iteration of a loop, returning true if it crossed the
+         * threshold and the method was promoted, so the loop can continue
+         * compiled.
+         */
+        private boolean backEdge() {
+            if (++backEdges != tiering.backEdges) {
+                return false;
+            }
+            if (compiled == null) {
+                promote();
+            }
+            return compiled != null;
+        }
+
+        private void promote() {
+            try {
+                compiled = new ClosureCompiler(scope).compileMethod(ast);
+                tiering.promoted++;
+            } catch (RuntimeException e) {
+                // the method keeps being interpreted, as for a variable
+                // declared twice in a block, which only fails when run
+            }
+        }
+
+    }
+
     /**
      * Exception class for returning values.
      */
@@ -0,0 +1,203 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs analyzed sources as JVM classes, by compiling the Java source from the
+ * {@link Generator} in memory with the system {@link JavaCompiler} and
+ * defining the classes in a new class loader for each source. Once HotSpot
+ * compiles the class, long running programs run much faster than with the
+ * {@link Interpreter}, but compiling takes javac's time and requires a JDK.
+ *
+ * Compiled classes are cached by the SHA-256 hash of the Java source, so
+ * running the same program again only creates a new instance. The cache has
+ * no size limit, and holds every class and its class loader for the lifetime
+ * of the compiler, so a long lived compiler for many distinct programs should
+ * be replaced periodically. Each class loader's parent is the bootstrap
+ * loader, so generated code can only use the Java platform and not the
+ * classes of this project.
+ */
+public final class JitCompiler {
+
+    private static final String CLASS_NAME = "Main";
+
+    private final JavaCompiler compiler;
+    private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    public JitCompiler() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler is available, which requires running on a JDK.");
+        }
+    }
+
+    /**
+     * Generates and compiles the source, which must have been analyzed by the
+     * {@link Analyzer}, and returns its main result.
+     */
+    public Object run(Ast.Source ast) {
+        return run(compile(ast));
+    }
+
+    /**
+     * Calls main/0 of a new instance of the class, which returns an int.
+     */
+    public Object run(Class<?> main) {
+        return invoke(main);
+    }
+
+    /**
+     * Calls main/0 of a new instance of a class compiled for a source, by
+     * this or the {@link JvmCompiler}.
+     */
+    static Object invoke(Class<?> main) {
+        try {
+            Object instance = main.getDeclaredConstructor().newInstance();
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return method.invoke(instance);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("The program failed: " + e.getCause() + ".", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Expected a class generated for a source.", e);
+        }
+    }
+
+    /**
+     * Returns the class for the source, which must have been analyzed by the
+     * {@link Analyzer}.
+     */
+    public Class<?> compile(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return compile(writer.toString());
+    }
+
+    /**
+     * Returns the class for Java source declaring the class Main, compiling it
+     * unless it was already compiled.
+     */
+    public Class<?> compile(String java) {
+        return classes.computeIfAbsent(ParseCache.hash(java.getBytes(StandardCharsets.UTF_8)), hash -> define(java));
+    }
+
+    /**
+     * Returns the number of classes in the cache.
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    private Class<?> define(String java) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> output = new HashMap<>();
+        StringWriter log = new StringWriter(); // javac's own output, instead of System.err
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaFileManager manager = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                    return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension), kind) {
+
+                        @Override
+                        public OutputStream openOutputStream() {
+                            return new ByteArrayOutputStream() {
+
+                                @Override
+                                public void close() {
+                                    output.put(className, toByteArray());
+                                }
+
+                            };
+                        }
+
+                    };
+                }
+
+            };
+            JavaFileObject source = new SimpleJavaFileObject(URI.create("memory:///" + CLASS_NAME + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return java;
+                }
+
+            };
+            boolean success;
+            try {
+                success = compiler.getTask(log, manager, diagnostics, Arrays.asList("-proc:none", "-g:none"), null, Collections.singletonList(source)).call();
+            } catch (RuntimeException e) { // javac itself failed, such as by overflowing its stack
+                throw new RuntimeException("The Java compiler failed on the generated source:\n" + log, e);
+            }
+            if (!success) {
+                StringBuilder message = new StringBuilder("The generated source does not compile:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append("\n").append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+                }
+                if (log.getBuffer().length() > 0) {
+                    message.append("\n").append(log);
+                }
+                throw new RuntimeException(message.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return Class.forName(CLASS_NAME, false, new MemoryClassLoader(output));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The generated source does not declare " + CLASS_NAME + ".", e);
+        }
+    }
+
+    /**
+     * Defines classes from the compiled bytes, delegating only to the
+     * bootstrap loader otherwise.
+     */
+    static final class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            super(null);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
@@ -0,0 +1,962 @@
+package plc.project;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles analyzed sources straight to a JVM class with the {@link
+ * ClassWriter}, without generating Java source or needing a Java compiler.
+ * The class has the same shape as the {@link Generator}'s: fields and methods
+ * of an instance of {@code Main}, whose constructor initializes the fields.
+ *
+ * Values are kept in the JVM types of their {@link Environment.Type}s, so
+ * Integer, Decimal, Boolean and Character variables are primitive locals, and
+ * are only boxed when passed as an {@code Any} or {@code Comparable}. Calls to
+ * the source's methods are direct, and other functions are resolved by their
+ * JVM names with reflection when compiling, such as {@code System.out.println}
+ * for print or {@code substring} for slice, choosing overloads by the
+ * functions' parameter types as Java would.
+ *
+ * As with the {@link JitCompiler}, integers overflow and fields without a
+ * value start as zero or null. {@code ==} and {@code !=} on references use
+ * {@link java.util.Objects#equals} as in the {@link Interpreter}, and methods
+ * without a {@code RETURN} at the end return zero or null.
+ */
+public final class JvmCompiler implements Ast.Visitor<Class<?>>, Ast.IterativeVisitor<Class<?>> {
+
+    private static final String CLASS_NAME = "Main";
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<>();
+
+    static {
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(double.class, Double.class);
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(byte.class, Byte.class);
+    }
+
+    private ClassWriter writer;
+    private ClassWriter.MethodWriter method;
+    private final Map<Environment.Function, Ast.Method> methods = new IdentityHashMap<>();
+    private final Map<String, Class<?>> fields = new LinkedHashMap<>();
+    private final Map<Ast.Expr, Target> targets = new IdentityHashMap<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private int slots = 0;
+    private Class<?> returnType;
+
+    // the labels after the right operand of each AND or OR being compiled
+    private final List<ClassWriter.Label> skips = new ArrayList<>();
+
+    /**
+     * Compiles the source, which must have been analyzed by the {@link
+     * Analyzer}, and returns the class file for {@code Main}.
+     */
+    public byte[] compile(Ast.Source ast) {
+        writer = new ClassWriter(CLASS_NAME);
+        methods.clear();
+        fields.clear();
+        targets.clear();
+        visit(ast);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Compiles the source and defines the class in a new class loader.
+     */
+    public Class<?> load(Ast.Source ast) {
+        byte[] bytes = compile(ast);
+        try {
+            return Class.forName(CLASS_NAME, false, new JitCompiler.MemoryClassLoader(Collections.singletonMap(CLASS_NAME, bytes)));
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        } catch (VerifyError e) {
+            throw new RuntimeException("The compiled class does not verify: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles the source and returns its main result.
+     */
+    public Object run(Ast.Source ast) {
+        return JitCompiler.invoke(load(ast));
+    }
+
+    @Override
+    public Class<?> visit(Ast.Source ast) {
+        for (Ast.Method method : ast.getMethods()) { // so calls to later methods are resolved
+            methods.put(method.getFunction(), method);
+        }
+        method = writer.method(ClassWriter.ACC_PUBLIC, "<init>", "()V");
+        method.local(ClassWriter.MethodWriter.ALOAD, 0, 1);
+        method.invoke(ClassWriter.MethodWriter.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        method.op(ClassWriter.MethodWriter.RETURN, 0);
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Field ast) {
+        Class<?> type = type(ast.getVariable().getType());
+        writer.field(ClassWriter.ACC_PUBLIC, ast.getName(), descriptor(type));
+        if (ast.getValue().isPresent()) {
+            method.local(ClassWriter.MethodWriter.ALOAD, 0, 1);
+            coerce(expression(ast.getValue().get()), type);
+            method.field(ClassWriter.MethodWriter.PUTFIELD, CLASS_NAME, ast.getName(), descriptor(type));
+        }
+        fields.put(ast.getName(), type);
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Method ast) {
+        Target target = target(ast);
+        method = writer.method(ClassWriter.ACC_PUBLIC, ast.getName(), target.descriptor);
+        returnType = target.result;
+        slots = 1;
+        method.locals(slots);
+        push();
+        try {
+            for (int i = 0; i < ast.getParameters().size(); i++) {
+                declare(ast.getParameters().get(i), target.parameters[i]);
+            }
+            for (Ast.Stmt statement : ast.getStatements()) {
+                visit(statement);
+            }
+        } finally {
+            pop();
+        }
+        if (returnType != void.class) {
+            zero(returnType);
+        }
+        method.op(returnOpcode(returnType), -size(returnType));
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.Expression ast) {
+        pop(expression(ast.getExpression()));
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.Declaration ast) {
+        Class<?> type = type(ast.getVariable().getType());
+        if (ast.getValue().isPresent()) {
+            coerce(expression(ast.getValue().get()), type);
+        } else {
+            zero(type); // the verifier requires locals to be assigned before they are read
+        }
+        Local local = declare(ast.getName(), type);
+        method.local(storeOpcode(type), local.slot, size(type));
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        if (access.getReceiver().isPresent()) {
+            Target target = target(access);
+            if (target.opcode != ClassWriter.MethodWriter.GETFIELD) {
+                throw new RuntimeException("The field " + access.getName() + " can't be assigned.");
+            }
+            coerce(expression(access.getReceiver().get()), target.receiver);
+            coerce(expression(ast.getValue()), target.result);
+            method.field(ClassWriter.MethodWriter.PUTFIELD, target.owner, target.name, target.descriptor);
+            return null;
+        }
+        Local local = lookup(access.getName());
+        if (local != null) {
+            coerce(expression(ast.getValue()), local.type);
+            method.local(storeOpcode(local.type), local.slot, size(local.type));
+        } else {
+            Class<?> type = field(access.getName());
+            method.local(ClassWriter.MethodWriter.ALOAD, 0, 1);
+            coerce(expression(ast.getValue()), type);
+            method.field(ClassWriter.MethodWriter.PUTFIELD, CLASS_NAME, access.getName(), descriptor(type));
+        }
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.If ast) {
+        ClassWriter.Label otherwise = new ClassWriter.Label();
+        coerce(expression(ast.getCondition()), boolean.class);
+        method.jump(ClassWriter.MethodWriter.IFEQ, otherwise);
+        block(ast.getThenStatements());
+        if (ast.getElseStatements().isEmpty()) {
+            method.label(otherwise);
+        } else {
+            ClassWriter.Label end = new ClassWriter.Label();
+            method.jump(ClassWriter.MethodWriter.GOTO, end);
+            method.label(otherwise);
+            block(ast.getElseStatements());
+            method.label(end);
+        }
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.For ast) {
+        ClassWriter.Label loop = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+        coerce(expression(ast.getValue()), Iterable.class);
+        method.invoke(ClassWriter.MethodWriter.INVOKEINTERFACE, "java/lang/Iterable", "iterator", "()Ljava/util/Iterator;");
+        push();
+        try {
+            Local iterator = declare(null, Object.class);
+            method.local(ClassWriter.MethodWriter.ASTORE, iterator.slot, 1);
+            Local element = declare(ast.getName(), int.class);
+            method.label(loop);
+            method.local(ClassWriter.MethodWriter.ALOAD, iterator.slot, 1);
+            method.invoke(ClassWriter.MethodWriter.INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z");
+            method.jump(ClassWriter.MethodWriter.IFEQ, end);
+            method.local(ClassWriter.MethodWriter.ALOAD, iterator.slot, 1);
+            method.invoke(ClassWriter.MethodWriter.INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;");
+            coerce(Object.class, int.class);
+            method.local(ClassWriter.MethodWriter.ISTORE, element.slot, 1);
+            block(ast.getStatements());
+            method.jump(ClassWriter.MethodWriter.GOTO, loop);
+            method.label(end);
+        } finally {
+            pop();
+        }
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.While ast) {
+        ClassWriter.Label loop = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+        method.label(loop);
+        coerce(expression(ast.getCondition()), boolean.class);
+        method.jump(ClassWriter.MethodWriter.IFEQ, end);
+        block(ast.getStatements());
+        method.jump(ClassWriter.MethodWriter.GOTO, loop);
+        method.label(end);
+        return null;
+    }
+
+    @Override
+    public Class<?> visit(Ast.Stmt.Return ast) {
+        Class<?> value = expression(ast.getValue());
+        if (returnType == void.class) {
+            pop(value);
+        } else {
+            coerce(value, returnType);
+        }
+        method.op(returnOpcode(returnType), -size(returnType));
+        return null;
+    }
+
+    private void block(List<Ast.Stmt> statements) {
+        push();
+        try {
+            for (Ast.Stmt statement : statements) {
+                visit(statement);
+            }
+        } finally {
+            pop();
+        }
+    }
+
+    /**
+     * Compiles an expression, leaving its value on the stack, and returns its
+     * JVM type.
+     */
+    private Class<?> expression(Ast.Expr ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Class<?> visit(Ast.Expr.Literal ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Class<?> visit(Ast.Expr.Group ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Class<?> visit(Ast.Expr.Binary ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Class<?> visit(Ast.Expr.Access ast) {
+        return evaluate(ast);
+    }
+
+    @Override
+    public Class<?> visit(Ast.Expr.Function ast) {
+        return evaluate(ast);
+    }
+
+    /**
+     * Compiles each subexpression in the order Java evaluates them, with the
+     * receiver of a method call first. Each one is converted to the type its
+     * operation expects once it is compiled, which replaces its result.
+     */
+    @Override
+    public Ast.Expr next(Ast.Expr ast, List<Class<?>> results) {
+        int visited = results.size();
+        if (visited > 0) {
+            Class<?> type = operand(ast, visited - 1);
+            if (type != null) {
+                coerce(results.get(visited - 1), type);
+                results.set(visited - 1, type);
+            }
+        }
+        if (ast instanceof Ast.Expr.Group) {
+            return visited == 0 ? ((Ast.Expr.Group) ast).getExpression() : null;
+        } else if (ast instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            boolean concatenation = binary.getOperator().equals("+") && binary.getType() == Environment.Type.STRING;
+            if (concatenation) {
+                if (visited == 0) {
+                    method.type(ClassWriter.MethodWriter.NEW, "java/lang/StringBuilder");
+                    method.op(ClassWriter.MethodWriter.DUP, 1);
+                    method.invoke(ClassWriter.MethodWriter.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V");
+                } else {
+                    append(results.get(visited - 1));
+                }
+            }
+            if (visited == 0) {
+                return binary.getLeft();
+            } else if (visited == 1) {
+                if (binary.getOperator().equals("AND") || binary.getOperator().equals("OR")) {
+                    ClassWriter.Label skip = new ClassWriter.Label();
+                    method.jump(binary.getOperator().equals("AND") ? ClassWriter.MethodWriter.IFEQ : ClassWriter.MethodWriter.IFNE, skip);
+                    skips.add(skip);
+                }
+                return binary.getRight();
+            }
+            return null;
+        } else if (ast instanceof Ast.Expr.Access) {
+            Optional<Ast.Expr> receiver = ((Ast.Expr.Access) ast).getReceiver();
+            if (visited == 0 && receiver.isPresent()) {
+                target((Ast.Expr.Access) ast);
+                return receiver.get();
+            }
+            return null;
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            if (visited == 0) {
+                Target target = target(function);
+                if (target.self) {
+                    method.local(ClassWriter.MethodWriter.ALOAD, 0, 1);
+                }
+                for (Field field : target.statics) {
+                    method.field(ClassWriter.MethodWriter.GETSTATIC, internalName(field.getDeclaringClass()), field.getName(), descriptor(field.getType()));
+                }
+                if (function.getReceiver().isPresent()) {
+                    return function.getReceiver().get();
+                }
+            }
+            int argument = visited - (function.getReceiver().isPresent() ? 1 : 0);
+            return argument < function.getArguments().size() ? function.getArguments().get(argument) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Emits the instruction for an expression once its operands are on the
+     * stack, and returns the type of its value.
+     */
+    @Override
+    public Class<?> finish(Ast.Expr ast, List<Class<?>> results) {
+        if (ast instanceof Ast.Expr.Literal) {
+            return literal(((Ast.Expr.Literal) ast).getLiteral());
+        } else if (ast instanceof Ast.Expr.Group) {
+            return results.get(0);
+        } else if (ast instanceof Ast.Expr.Binary) {
+            return binary((Ast.Expr.Binary) ast, results.get(0));
+        } else if (ast instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) ast;
+            if (access.getReceiver().isPresent()) {
+                return call(targets.remove(ast));
+            }
+            Local local = lookup(access.getName());
+            if (local != null) {
+                method.local(loadOpcode(local.type), local.slot, size(local.type));
+                return local.type;
+            }
+            Class<?> type = field(access.getName());
+            method.local(ClassWriter.MethodWriter.ALOAD, 0, 1);
+            method.field(ClassWriter.MethodWriter.GETFIELD, CLASS_NAME, access.getName(), descriptor(type));
+            return type;
+        } else if (ast instanceof Ast.Expr.Function) {
+            return call(targets.remove(ast));
+        }
+        throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+    }
+
+    /**
+     * Returns the type the operand at the index is converted to, or null to
+     * keep its own type.
+     */
+    private Class<?> operand(Ast.Expr ast, int index) {
+        if (ast instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            switch (binary.getOperator()) {
+                case "AND":
+                case "OR":
+                    return boolean.class;
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                case "==":
+                case "!=":
+                    Class<?> left = type(binary.getLeft().getType());
+                    if (left.isPrimitive() && left == type(binary.getRight().getType())) {
+                        return left;
+                    }
+                    boolean equality = binary.getOperator().equals("==") || binary.getOperator().equals("!=");
+                    return index == 0 && !equality ? Comparable.class : Object.class;
+                default:
+                    return binary.getType() == Environment.Type.STRING ? null : type(binary.getType());
+            }
+        } else if (ast instanceof Ast.Expr.Access) {
+            return targets.get(ast).receiver;
+        } else if (ast instanceof Ast.Expr.Function) {
+            Target target = targets.get(ast);
+            if (((Ast.Expr.Function) ast).getReceiver().isPresent()) {
+                return index == 0 ? target.receiver : target.parameters[index - 1];
+            }
+            return target.parameters[index];
+        }
+        return null;
+    }
+
+    private Class<?> literal(Object literal) {
+        if (literal instanceof Boolean) {
+            method.integer((Boolean) literal ? 1 : 0);
+            return boolean.class;
+        } else if (literal instanceof Character) {
+            method.integer((Character) literal);
+            return char.class;
+        } else if (literal instanceof BigInteger) {
+            method.integer(((BigInteger) literal).intValue());
+            return int.class;
+        } else if (literal instanceof BigDecimal) {
+            method.decimal(((BigDecimal) literal).doubleValue());
+            return double.class;
+        } else if (literal instanceof String) {
+            method.string((String) literal);
+            return String.class;
+        }
+        method.op(ClassWriter.MethodWriter.ACONST_NULL, 1);
+        return Object.class;
+    }
+
+    private Class<?> binary(Ast.Expr.Binary ast, Class<?> type) {
+        switch (ast.getOperator()) {
+            case "AND":
+            case "OR":
+                ClassWriter.Label end = new ClassWriter.Label();
+                method.jump(ClassWriter.MethodWriter.GOTO, end);
+                method.label(skips.remove(skips.size() - 1));
+                method.integer(ast.getOperator().equals("AND") ? 0 : 1);
+                method.label(end);
+                return boolean.class;
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+            case "==":
+            case "!=":
+                int opcode = comparison(ast.getOperator());
+                if (type == double.class) {
+                    boolean less = ast.getOperator().startsWith("<");
+                    method.op(less ? ClassWriter.MethodWriter.DCMPG : ClassWriter.MethodWriter.DCMPL, -3);
+                } else if (type.isPrimitive()) {
+                    opcode += ClassWriter.MethodWriter.IF_ICMPEQ - ClassWriter.MethodWriter.IFEQ;
+                } else if (opcode == ClassWriter.MethodWriter.IFEQ || opcode == ClassWriter.MethodWriter.IFNE) {
+                    method.invoke(ClassWriter.MethodWriter.INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+                    opcode = opcode == ClassWriter.MethodWriter.IFEQ ? ClassWriter.MethodWriter.IFNE : ClassWriter.MethodWriter.IFEQ;
+                } else {
+                    method.invoke(ClassWriter.MethodWriter.INVOKEINTERFACE, "java/lang/Comparable", "compareTo", "(Ljava/lang/Object;)I");
+                }
+                ClassWriter.Label yes = new ClassWriter.Label();
+                ClassWriter.Label done = new ClassWriter.Label();
+                method.jump(opcode, yes);
+                method.integer(0);
+                method.jump(ClassWriter.MethodWriter.GOTO, done);
+                method.label(yes);
+                method.integer(1);
+                method.label(done);
+                return boolean.class;
+            case "+":
+                if (ast.getType() == Environment.Type.STRING) {
+                    method.invoke(ClassWriter.MethodWriter.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+                    return String.class;
+                }
+                return arithmetic(type, ClassWriter.MethodWriter.IADD, ClassWriter.MethodWriter.DADD);
+            case "-":
+                return arithmetic(type, ClassWriter.MethodWriter.ISUB, ClassWriter.MethodWriter.DSUB);
+            case "*":
+                return arithmetic(type, ClassWriter.MethodWriter.IMUL, ClassWriter.MethodWriter.DMUL);
+            case "/":
+                return arithmetic(type, ClassWriter.MethodWriter.IDIV, ClassWriter.MethodWriter.DDIV);
+            default:
+                throw new RuntimeException("Unknown operator " + ast.getOperator() + ".");
+        }
+    }
+
+    private Class<?> arithmetic(Class<?> type, int integer, int decimal) {
+        if (type == double.class) {
+            method.op(decimal, -2);
+        } else {
+            method.op(integer, -1);
+        }
+        return type;
+    }
+
+    /**
+     * Returns the {@code IF} opcode which jumps if the comparison of the
+     * operands to each other, or of the result of comparing them to zero, is
+     * true.
+     */
+    private static int comparison(String operator) {
+        switch (operator) {
+            case "==": return ClassWriter.MethodWriter.IFEQ;
+            case "!=": return ClassWriter.MethodWriter.IFNE;
+            case "<": return ClassWriter.MethodWriter.IFLT;
+            case "<=": return ClassWriter.MethodWriter.IFLE;
+            case ">": return ClassWriter.MethodWriter.IFGT;
+            default: return ClassWriter.MethodWriter.IFGE;
+        }
+    }
+
+    private void append(Class<?> type) {
+        String argument = type.isPrimitive() ? descriptor(type) : type == String.class ? "Ljava/lang/String;" : "Ljava/lang/Object;";
+        method.invoke(ClassWriter.MethodWriter.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + argument + ")Ljava/lang/StringBuilder;");
+    }
+
+    /**
+     * Emits the access of a field or call of a method whose operands are on
+     * the stack, pushing null for methods without a value.
+     */
+    private Class<?> call(Target target) {
+        if (target.opcode == ClassWriter.MethodWriter.GETFIELD) {
+            method.field(target.opcode, target.owner, target.name, target.descriptor);
+            return target.result;
+        }
+        method.invoke(target.opcode, target.owner, target.name, target.descriptor);
+        if (target.result == void.class) {
+            method.op(ClassWriter.MethodWriter.ACONST_NULL, 1);
+            return Object.class;
+        }
+        return target.result;
+    }
+
+    private Target target(Ast.Method ast) {
+        Environment.Function function = ast.getFunction();
+        Class<?>[] parameters = new Class<?>[function.getParameterTypes().size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = type(function.getParameterTypes().get(i));
+        }
+        Class<?> result = function.getReturnType() == Environment.Type.NIL ? void.class : type(function.getReturnType());
+        return new Target(ClassWriter.MethodWriter.INVOKEVIRTUAL, CLASS_NAME, ast.getName(), parameters, result);
+    }
+
+    /**
+     * Returns the field or method of the receiver's class for the variable,
+     * whose JVM name is either a public field or a method without arguments
+     * such as {@code length()}.
+     */
+    private Target target(Ast.Expr.Access ast) {
+        Target target = targets.get(ast);
+        if (target != null) {
+            return target;
+        }
+        Class<?> owner = box(type(ast.getReceiver().get().getType()));
+        String jvmName = ast.getVariable().getJvmName();
+        if (jvmName.endsWith("()")) {
+            target = method(owner, jvmName.substring(0, jvmName.length() - 2), new Class<?>[0], ast.getName());
+        } else {
+            try {
+                Field field = owner.getField(jvmName);
+                target = new Target(ClassWriter.MethodWriter.GETFIELD, internalName(owner), jvmName, descriptor(field.getType()), new Class<?>[0], field.getType());
+            } catch (NoSuchFieldException e) {
+                throw new RuntimeException("The field " + ast.getName() + " is not a field of " + owner.getName() + ".");
+            }
+        }
+        target.receiver = owner;
+        targets.put(ast, target);
+        return target;
+    }
+
+    /**
+     * Returns the method called by the function, which is either a method of
+     * the source, a method of the receiver's class, or a static method or
+     * method of a static field for JVM names such as {@code
+     * System.out.println}.
+     */
+    private Target target(Ast.Expr.Function ast) {
+        Target target = targets.get(ast);
+        if (target != null) {
+            return target;
+        }
+        Environment.Function function = ast.getFunction();
+        // by the parameter types, since the Analyzer leaves the first argument
+        // of a method with a receiver without a type
+        List<Environment.Type> parameters = function.getParameterTypes();
+        int receiver = ast.getReceiver().isPresent() ? 1 : 0;
+        Class<?>[] arguments = new Class<?>[ast.getArguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = type(parameters.get(i + receiver));
+        }
+        String signature = function.getName() + "/" + arguments.length;
+        if (ast.getReceiver().isPresent()) {
+            Class<?> owner = box(type(ast.getReceiver().get().getType()));
+            target = method(owner, function.getJvmName(), arguments, signature);
+            target.receiver = owner;
+        } else if (methods.containsKey(function)) {
+            target = target(methods.get(function));
+            target.self = true;
+        } else {
+            String jvmName = function.getJvmName();
+            int dot = jvmName.lastIndexOf('.');
+            if (dot < 0) {
+                throw new RuntimeException("The function " + signature + " is not defined in the source.");
+            }
+            String[] path = jvmName.substring(0, dot).split("\\.");
+            int length = path.length;
+            Class<?> owner = null;
+            while (owner == null && length > 0) {
+                owner = platformClass(String.join(".", Arrays.asList(path).subList(0, length)));
+                if (owner == null) {
+                    length--;
+                }
+            }
+            if (owner == null) {
+                throw new RuntimeException("The function " + signature + " has no class for its JVM name " + jvmName + ".");
+            }
+            List<Field> statics = new ArrayList<>();
+            for (int i = length; i < path.length; i++) {
+                try {
+                    Field field = owner.getField(path[i]);
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        throw new NoSuchFieldException(path[i]);
+                    }
+                    statics.add(field);
+                    owner = field.getType();
+                } catch (NoSuchFieldException e) {
+                    throw new RuntimeException("The function " + signature + " has no static field for its JVM name " + jvmName + ".");
+                }
+            }
+            target = statics.isEmpty()
+                    ? staticMethod(owner, jvmName.substring(dot + 1), arguments, signature)
+                    : method(owner, jvmName.substring(dot + 1), arguments, signature);
+            target.statics = statics;
+        }
+        targets.put(ast, target);
+        return target;
+    }
+
+    private static Target method(Class<?> owner, String name, Class<?>[] arguments, String signature) {
+        Method method = resolve(owner, name, arguments, false);
+        if (method == null && owner.isInterface()) {
+            owner = Object.class; // interfaces don't list the methods of Object
+            method = resolve(owner, name, arguments, false);
+        }
+        if (method == null) {
+            throw new RuntimeException("The function " + signature + " has no method " + name + " in " + owner.getName() + ".");
+        }
+        int opcode = owner.isInterface() ? ClassWriter.MethodWriter.INVOKEINTERFACE : ClassWriter.MethodWriter.INVOKEVIRTUAL;
+        return new Target(opcode, internalName(owner), name, method.getParameterTypes(), method.getReturnType());
+    }
+
+    private static Target staticMethod(Class<?> owner, String name, Class<?>[] arguments, String signature) {
+        Method method = resolve(owner, name, arguments, true);
+        if (method == null) {
+            throw new RuntimeException("The function " + signature + " has no static method " + name + " in " + owner.getName() + ".");
+        }
+        return new Target(ClassWriter.MethodWriter.INVOKESTATIC, internalName(owner), name, method.getParameterTypes(), method.getReturnType());
+    }
+
+    /**
+     * Returns the most specific public method applicable to the arguments,
+     * first without boxing and then with it as Java does, or null if there
+     * isn't one.
+     */
+    private static Method resolve(Class<?> owner, String name, Class<?>[] arguments, boolean isStatic) {
+        for (boolean boxing : new boolean[] {false, true}) {
+            Method best = null;
+            for (Method method : owner.getMethods()) {
+                if (method.getName().equals(name) && !method.isBridge()
+                        && Modifier.isStatic(method.getModifiers()) == isStatic
+                        && applicable(method.getParameterTypes(), arguments, boxing)
+                        && (best == null || applicable(best.getParameterTypes(), method.getParameterTypes(), false))) {
+                    best = method;
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+        return null;
+    }
+
+    private static boolean applicable(Class<?>[] parameters, Class<?>[] arguments, boolean boxing) {
+        if (parameters.length != arguments.length) {
+            return false;
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> parameter = parameters[i];
+            Class<?> argument = arguments[i];
+            boolean assignable = parameter == argument
+                    || !parameter.isPrimitive() && !argument.isPrimitive() && parameter.isAssignableFrom(argument)
+                    || boxing && (parameter.isAssignableFrom(box(argument)) || box(parameter) == argument);
+            if (!assignable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the class of the Java platform with the name, or in {@code
+     * java.lang} for a simple name, or null if there isn't one.
+     */
+    private static Class<?> platformClass(String name) {
+        for (String candidate : name.contains(".") ? new String[] {name} : new String[] {"java.lang." + name, name}) {
+            try {
+                Class<?> type = Class.forName(candidate, false, null);
+                if (Modifier.isPublic(type.getModifiers())) {
+                    return type;
+                }
+            } catch (ClassNotFoundException e) {
+                // try the next candidate
+            }
+        }
+        return null;
+    }
+
+    private Class<?> field(String name) {
+        Class<?> type = fields.get(name);
+        if (type == null) {
+            throw new RuntimeException("The variable " + name + " is not defined in the source.");
+        }
+        return type;
+    }
+
+    private void push() {
+        blocks.add(new Block(slots));
+    }
+
+    private void pop() {
+        slots = blocks.remove(blocks.size() - 1).start;
+    }
+
+    /**
+     * Gives the variable the next free slots of the block, or hides it if the
+     * name is null.
+     */
+    private Local declare(String name, Class<?> type) {
+        Local local = new Local(slots, type);
+        slots += size(type);
+        method.locals(slots);
+        if (name != null) {
+            blocks.get(blocks.size() - 1).locals.put(name, local);
+        }
+        return local;
+    }
+
+    private Local lookup(String name) {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Local local = blocks.get(i).locals.get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts the value on the stack between types, boxing and unboxing
+     * primitives and casting references which aren't already assignable.
+     */
+    private void coerce(Class<?> from, Class<?> to) {
+        if (from == to) {
+            return;
+        }
+        if (from.isPrimitive()) {
+            Class<?> wrapper = box(from);
+            method.invoke(ClassWriter.MethodWriter.INVOKESTATIC, internalName(wrapper), "valueOf", "(" + descriptor(from) + ")" + descriptor(wrapper));
+            from = wrapper;
+        }
+        if (to.isPrimitive()) {
+            Class<?> wrapper = box(to);
+            if (from != wrapper) {
+                method.type(ClassWriter.MethodWriter.CHECKCAST, internalName(wrapper));
+            }
+            method.invoke(ClassWriter.MethodWriter.INVOKEVIRTUAL, internalName(wrapper), to.getName() + "Value", "()" + descriptor(to));
+        } else if (!to.isAssignableFrom(from)) {
+            method.type(ClassWriter.MethodWriter.CHECKCAST, internalName(to));
+        }
+    }
+
+    private void pop(Class<?> type) {
+        method.op(size(type) == 2 ? ClassWriter.MethodWriter.POP2 : ClassWriter.MethodWriter.POP, -size(type));
+    }
+
+    private void zero(Class<?> type) {
+        if (type == double.class) {
+            method.op(ClassWriter.MethodWriter.DCONST_0, 2);
+        } else if (type.isPrimitive()) {
+            method.op(ClassWriter.MethodWriter.ICONST_0, 1);
+        } else {
+            method.op(ClassWriter.MethodWriter.ACONST_NULL, 1);
+        }
+    }
+
+    /**
+     * Returns the JVM type of values of the type, by its JVM name.
+     */
+    private static Class<?> type(Environment.Type type) {
+        switch (type.getJvmName()) {
+            case "int": return int.class;
+            case "double": return double.class;
+            case "boolean": return boolean.class;
+            case "char": return char.class;
+            case "String": return String.class;
+            case "Comparable": return Comparable.class;
+            case "Iterable<Integer>": return Iterable.class;
+            default: return Object.class;
+        }
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return WRAPPERS.getOrDefault(type, type);
+    }
+
+    private static int size(Class<?> type) {
+        return type == void.class ? 0 : type == double.class || type == long.class ? 2 : 1;
+    }
+
+    private static int loadOpcode(Class<?> type) {
+        return type == double.class ? ClassWriter.MethodWriter.DLOAD : type.isPrimitive() ? ClassWriter.MethodWriter.ILOAD : ClassWriter.MethodWriter.ALOAD;
+    }
+
+    private static int storeOpcode(Class<?> type) {
+        return type == double.class ? ClassWriter.MethodWriter.DSTORE : type.isPrimitive() ? ClassWriter.MethodWriter.ISTORE : ClassWriter.MethodWriter.ASTORE;
+    }
+
+    private static int returnOpcode(Class<?> type) {
+        return type == void.class ? ClassWriter.MethodWriter.RETURN
+                : type == double.class ? ClassWriter.MethodWriter.DRETURN
+                : type.isPrimitive() ? ClassWriter.MethodWriter.IRETURN
+                : ClassWriter.MethodWriter.ARETURN;
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return internalName(type);
+        } else if (!type.isPrimitive()) {
+            return "L" + internalName(type) + ";";
+        }
+        switch (type.getName()) {
+            case "void": return "V";
+            case "int": return "I";
+            case "double": return "D";
+            case "boolean": return "Z";
+            case "char": return "C";
+            case "long": return "J";
+            case "float": return "F";
+            case "short": return "S";
+            default: return "B";
+        }
+    }
+
+    /**
+     * A field or method used by an expression, the type its receiver is
+     * converted to, and the static fields loaded for the receiver of a
+     * function such as {@code System.out.println}.
+     */
+    private static final class Target {
+
+        private final int opcode;
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+        private final Class<?>[] parameters;
+        private final Class<?> result;
+        private Class<?> receiver;
+        private boolean self = false;
+        private List<Field> statics = Collections.emptyList();
+
+        private Target(int opcode, String owner, String name, Class<?>[] parameters, Class<?> result) {
+            this(opcode, owner, name, methodDescriptor(parameters, result), parameters, result);
+        }
+
+        private Target(int opcode, String owner, String name, String descriptor, Class<?>[] parameters, Class<?> result) {
+            this.opcode = opcode;
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.parameters = parameters;
+            this.result = result;
+        }
+
+        private static String methodDescriptor(Class<?>[] parameters, Class<?> result) {
+            StringBuilder descriptor = new StringBuilder("(");
+            for (Class<?> parameter : parameters) {
+                descriptor.append(descriptor(parameter));
+            }
+            return descriptor.append(")").append(descriptor(result)).toString();
+        }
+
+    }
+
+    private static final class Block {
+
+        private final int start;
+        private final Map<String, Local> locals = new HashMap<>();
+
+        private Block(int start) {
+            this.start = start;
+        }
+
+    }
+
+    private static final class Local {
+
+        private final int slot;
+        private final Class<?> type;
+
+        private Local(int slot, Class<?> type) {
+            this.slot = slot;
+            this.type = type;
+        }
+
+    }
+
+}
@@ -1,8 +1,22 @@
 package plc.project;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The lexer works through three main functions:
@@ -15,15 +29,99 @@ import java.util.List;
  * should throw a {@link ParseException} with an index at the character which is
  * invalid or missing.
  *
- * The {@link #peek(String...)} and {@link #match(String...)} functions are
- * helpers you need to use, they will make the implementation a lot easier.
+ * Characters are classified through the precomputed {@link #CLASSES} table
+ * rather than regex matching, and each lex method is a small hand-written state
+ * machine over those classes. The regex based {@link #peek(String...)} and
+ * {@link #match(String...)} helpers are kept for callers outside the lexer but
+ * are not used on the lexing path.
  */
 public final class Lexer {
 
+    private static final byte IDENTIFIER_START = 1; // [A-Za-z_]
+    private static final byte IDENTIFIER_PART = 2;  // [A-Za-z0-9_-]
+    private static final byte DIGIT = 4;            // [0-9]
+    private static final byte SIGN = 8;             // [+-]
+    private static final byte WHITESPACE = 16;      // [ \b\n\r\t]
+    private static final byte ESCAPE = 32;          // [bnrt'"\\]
+    private static final byte LINE_END = 64;        // [\n\r]
+
+    /**
+     * Character class bit sets for ASCII characters, indexed by the character.
+     * Anything outside of ASCII belongs to no class.
+     */
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] |= IDENTIFIER_START | IDENTIFIER_PART;
+            CLASSES[c + ('a' - 'A')] |= IDENTIFIER_START | IDENTIFIER_PART;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= IDENTIFIER_PART | DIGIT;
+        }
+        CLASSES['_'] |= IDENTIFIER_START | IDENTIFIER_PART;
+        CLASSES['-'] |= IDENTIFIER_PART | SIGN;
+        CLASSES['+'] |= SIGN;
+        for (char c : " \b\n\r\t".toCharArray()) {
+            CLASSES[c] |= WHITESPACE;
+        }
+        for (char c : "bnrt'\"\\".toCharArray()) {
+            CLASSES[c] |= ESCAPE;
+        }
+        CLASSES['\n'] |= LINE_END;
+        CLASSES['\r'] |= LINE_END;
+    }
+
+    /**
+     * Inputs shorter than this are lexed sequentially by {@link
+     * #lexParallel()}, as splitting them costs more than it saves.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
     private final CharStream chars;
+    private final SymbolTable symbols;
+    private LexerTrace trace = null;
+    private int escape = -1; // index of the first escape in the current token
 
     public Lexer(String input) {
         chars = new CharStream(input);
+        symbols = new SymbolTable();
+    }
+
+    private Lexer(String input, int start, int end, SymbolTable symbols) {
+        chars = new CharStream(input, start, end);
+        this.symbols = symbols;
+    }
+
+    /**
+     * Creates a lexer reading characters from the reader on demand, which is
+     * intended to be used with {@link #hasToken()} and {@link #lexToken()} to
+     * stream tokens instead of lexing the entire input up front.
+     */
+    public Lexer(Reader reader) {
+        chars = new CharStream(reader);
+        symbols = new SymbolTable();
+    }
+
+    /**
+     * Creates a lexer over a memory-mapped UTF-8 (or ASCII) file, decoding it
+     * on demand instead of reading it into a {@link String}. Token indices are
+     * character offsets into the file, as with a {@link String} input.
+     */
+    public Lexer(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            chars = new CharStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        symbols = new SymbolTable();
+    }
+
+    /**
+     * Sets the trace receiving an event for each token lexed, or {@code null}
+     * (the default) to disable tracing. When lexing in parallel the trace is
+     * shared by all chunks and must be thread-safe.
+     */
+    public void setTrace(LexerTrace trace) {
+        this.trace = trace;
     }
 
     /**
@@ -32,15 +130,239 @@ public final class Lexer {
      */
     public List<Token> lex() {
         List<Token> tokens = new ArrayList<>();
-        while(chars.has(0)) {
-            if(!(match(" ") || match("\b") || match("\n") || match("\r") || match("\t"))) // checks whitespace
+        while (hasToken()) {
+            tokens.add(lexToken());
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes the input in the same way as {@link #lex()}, but instead of
+     * throwing on an invalid token records the exception in {@code errors} and
+     * emits an {@link Token.Type#ERROR} token from the start of the invalid
+     * token to the end of its line, where lexing continues. This reports every
+     * line with an error in one pass, at the cost of any valid tokens after an
+     * error on the same line.
+     */
+    public List<Token> lex(List<plc.project.ParseException> errors) {
+        List<Token> tokens = new ArrayList<>();
+        while (hasToken()) {
+            try {
                 tokens.add(lexToken());
-            else {
-                chars.skip();
+            } catch (plc.project.ParseException e) {
+                errors.add(e);
+                tokens.add(recover());
+            } catch (UnsupportedOperationException e) { // a line terminator that is not whitespace
+                errors.add(new plc.project.ParseException("invalid character", chars.index));
+                chars.advance();
+                tokens.add(recover());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Emits the characters of the invalid token so far and the rest of its
+     * line as an {@link Token.Type#ERROR} token.
+     */
+    private Token recover() {
+        while (chars.has(0) && !isLineTerminator(chars.get(0))) {
+            chars.advance();
+        }
+        return chars.emit(Token.Type.ERROR);
+    }
+
+    /**
+     * Lexes the input in the same way as {@link #lex()}, but records the tokens
+     * in a {@link TokenBuffer} over the original input instead of creating a
+     * {@link Token} and literal substring for each one. This requires the lexer
+     * to have been created with a {@link String} input.
+     */
+    public TokenBuffer lexBuffer() {
+        if (chars.input == null) {
+            throw new IllegalStateException("Lexing into a TokenBuffer requires a String input.");
+        }
+        TokenBuffer buffer = new TokenBuffer(chars.input, symbols);
+        while (hasToken()) {
+            Token.Type type = scanNext();
+            int start = chars.index - chars.length;
+            if (type == Token.Type.IDENTIFIER) {
+                chars.emit(type, chars.intern(symbols), buffer);
+            } else {
+                chars.emit(type, escape < 0 ? -1 : escape - start, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Updates the tokens in place for an edit replacing {@code removed}
+     * characters at {@code offset} with the inserted text, which is much faster
+     * than lexing the edited source again for small edits. New identifiers are
+     * added to the symbol table of the tokens.
+     *
+     * Tokens never span lines, so only the region from the end of the last
+     * token before the edit through the end of the line containing the end of
+     * the edit is lexed again. Tokens before the region are kept as they are,
+     * and tokens after it are shifted by the change in length without being
+     * visited (see {@link TokenBuffer}). If the region fails to lex the tokens
+     * are left unchanged.
+     *
+     * Returns the offsets of the first token lexed again and of the token after
+     * the last one, which bound the tokens changed by the edit (see {@link
+     * Parser#parseSource(Ast.Source, int, int)}).
+     */
+    public static int[] relex(TokenBuffer tokens, int offset, int removed, String inserted) {
+        String source = tokens.getSource();
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new IndexOutOfBoundsException("Edit at " + offset + " removing " + removed
+                    + " characters is out of bounds for length " + source.length() + ".");
+        }
+        String input = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        // a token ending at the offset may be extended by the edit
+        int from = tokens.search(offset);
+        int start = from == 0 ? 0 : tokens.getIndex(from - 1) + tokens.getLength(from - 1);
+        int end = input.indexOf('\n', offset + inserted.length());
+        end = end < 0 ? input.length() : end + 1;
+        int to = end == input.length() ? tokens.size() : tokens.search(end - input.length() + source.length());
+        List<Token> region = new Lexer(input, start, end, tokens.getSymbols()).lex();
+        tokens.replace(from, to, input);
+        for (Token token : region) {
+            String literal = token.getLiteral();
+            int symbol = token.getType() == Token.Type.IDENTIFIER ? token.getSymbol() : literal.indexOf('\\');
+            tokens.add(token.getType(), token.getIndex(), literal.length(), symbol);
+        }
+        return new int[] {from, from + region.size()};
+    }
+
+    /**
+     * Lexes the input in the same way as {@link #lex()} using the common
+     * {@link ForkJoinPool}.
+     */
+    public List<Token> lexParallel() {
+        return lexParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Lexes the input in the same way as {@link #lex()}, but splits it into
+     * chunks which are lexed in parallel. Since no token may contain a line
+     * ending, chunks are split after a newline and token indices remain
+     * absolute. If any chunk fails, the exception from the first failing chunk
+     * is thrown, which is the same one {@link #lex()} would have thrown.
+     *
+     * This requires the lexer to have been created with a {@link String}
+     * input, and falls back to {@link #lex()} for inputs shorter than {@link
+     * #PARALLEL_THRESHOLD}.
+     */
+    public List<Token> lexParallel(ForkJoinPool pool) {
+        if (chars.input == null) {
+            throw new IllegalStateException("Parallel lexing requires a String input.");
+        }
+        String input = chars.input;
+        int start = chars.index;
+        if (input.length() - start < PARALLEL_THRESHOLD) {
+            return lex();
+        }
+        int size = Math.max(PARALLEL_THRESHOLD / 4, (input.length() - start) / (4 * pool.getParallelism()));
+        List<Chunk> chunks = new ArrayList<>();
+        while (start < input.length()) {
+            int end = input.indexOf('\n', Math.min(start + size, input.length()) - 1);
+            end = end < 0 ? input.length() : end + 1;
+            chunks.add(new Chunk(input, start, end));
+            start = end;
+        }
+        for (Chunk chunk : chunks) {
+            chunk.trace = trace;
+        }
+        chunks.get(0).symbols = symbols;
+        pool.invoke(new RecursiveAction() {
+
+            @Override
+            protected void compute() {
+                invokeAll(chunks);
+            }
+
+        });
+        List<Token> tokens = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+            if (chunk.symbols == symbols) {
+                tokens.addAll(chunk.tokens);
+            } else {
+                addInterned(chunk.tokens, chunk.symbols, tokens);
             }
         }
+        chars.index = input.length();
         return tokens;
-//        throw new UnsupportedOperationException(); //TODO
+    }
+
+    /**
+     * Adds tokens lexed with a separate symbol table, re-interning identifiers
+     * into this lexer's symbol table.
+     */
+    private void addInterned(List<Token> chunk, SymbolTable chunkSymbols, List<Token> tokens) {
+        int[] ids = new int[chunkSymbols.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = symbols.intern(chunkSymbols.getName(id));
+        }
+        for (Token token : chunk) {
+            if (token.getSymbol() >= 0 && !SymbolTable.isKeyword(token.getSymbol())) {
+                int symbol = ids[token.getSymbol()];
+                tokens.add(new Token(token.getType(), symbols.getName(symbol), token.getIndex(), symbol));
+            } else {
+                tokens.add(token);
+            }
+        }
+    }
+
+    /**
+     * A region of the input lexed by {@link #lexParallel(ForkJoinPool)}, which
+     * records any exception so it can be rethrown in input order.
+     */
+    private static final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String input;
+        private final int start;
+        private final int end;
+        private LexerTrace trace;
+        private SymbolTable symbols;
+        private List<Token> tokens;
+        private RuntimeException error;
+
+        private Chunk(String input, int start, int end) {
+            this.input = input;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                Lexer lexer = new Lexer(input, start, end, symbols != null ? symbols : new SymbolTable());
+                lexer.setTrace(trace);
+                tokens = lexer.lex();
+                symbols = lexer.symbols;
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+    }
+
+    /**
+     * Skips any whitespace, returning true if there is another token to lex
+     * with {@link #lexToken()}.
+     */
+    public boolean hasToken() {
+        while (chars.has(0) && is(chars.get(0), WHITESPACE)) {
+            chars.advance();
+            chars.skip();
+        }
+        return chars.has(0);
     }
 
     /**
@@ -52,126 +374,262 @@ public final class Lexer {
      * by {@link #lex()}
      */
     public Token lexToken() {
-        String whitespace = "[ \b\n\r\t]";
-        String identifier = "[A-Za-z_]";
-        String sign = "[\\+-]?";
-        String number = "[0-9]+";
-        String character = "'";
-        String operator = "([<>!=] '='?|(.))";
+        return emit(scanNext());
+    }
 
-        if(peek(identifier)) { // identifier
-            return lexIdentifier();
-        }
-        else if(peek(sign, number) || peek(number)) { // number
-            return lexNumber();
+    public Token lexIdentifier() {
+        long start = startTrace();
+        return emit(traced(scanIdentifier(), start));
+    }
+
+    public Token lexNumber() {
+        long start = startTrace();
+        return chars.emit(traced(scanNumber(), start));
+    }
+
+    public Token lexCharacter() {
+        long start = startTrace();
+        return chars.emit(traced(scanCharacter(), start));
+    }
+
+    public Token lexString() {
+        long start = startTrace();
+        return chars.emit(traced(scanString(), start));
+    }
+
+    public void lexEscape() {
+        if (trace != null) {
+            trace.escape(chars.index);
         }
-        else if(peek(character)) {
-            return lexCharacter();
+        if (escape < 0) {
+            escape = chars.index;
         }
-        else if(peek("\"")) {
-            return lexString();
+        if (!chars.has(0) || chars.get(0) != '\\') {
+            throw new plc.project.ParseException("invalid escape sequence", chars.index);
         }
-        else if(peek(operator)) {
-            return lexOperator();
+        chars.advance();
+        if (!next(ESCAPE)) {
+            throw new plc.project.ParseException("invalid escape character", chars.index);
         }
-        throw new UnsupportedOperationException(); //TODO
+        chars.advance();
     }
 
-    public Token lexIdentifier() {
-        System.out.println("Identifier found");
-        match("[A-Za-z_]"); // matches the first character for an Identifier
-        while(match("[A-Za-z0-9_-]")); // ensures the next character is valid and advances past the current
-        return chars.emit(Token.Type.IDENTIFIER);
+    public Token lexOperator() {
+        long start = startTrace();
+        return chars.emit(traced(scanOperator(), start));
     }
 
-    public Token lexNumber() {
-        System.out.println("Number found");
+    /**
+     * Returns the symbol table identifiers are interned into.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
 
-        if (peek("[\\+-]")) {
-            match("[\\+-]");
+    /**
+     * Emits the current token, interning the literal of identifiers.
+     */
+    private Token emit(Token.Type type) {
+        if (type == Token.Type.IDENTIFIER) {
+            int start = chars.index - chars.length;
+            int symbol = chars.intern(symbols);
+            chars.skip();
+            return new Token(type, symbols.getName(symbol), start, symbol);
         }
+        return chars.emit(type);
+    }
 
-        if (peek("[0-9]")) {
-            while (match("[0-9]")); // Match until decimal
-
-            if (peek("\\.")) {
-                match("\\.");// match decimal
-                if (peek("[0-9]+")) {
-                    while (match("[0-9]")); // Match until NaN
-                    return chars.emit(Token.Type.DECIMAL);
-                } else {
-                    throw new plc.project.ParseException("Trailing decimal", chars.index);
-                }
-            } else {
-                return chars.emit(Token.Type.INTEGER);
-            }
-        }
-        throw new UnsupportedOperationException(); //TODO
+    /**
+     * Scans the next token, reporting it to the trace if one is set.
+     */
+    private Token.Type scanNext() {
+        long start = startTrace();
+        return traced(scanToken(), start);
     }
 
-    public Token lexCharacter() {
-        System.out.println("Character found");
-        match("'");
-        String acceptedChars = "([^'\\n\\r])";
+    /**
+     * Returns the start time of a token for {@link #traced(Token.Type, long)},
+     * which is only read if a trace is set.
+     */
+    private long startTrace() {
+        return trace != null ? System.nanoTime() : 0;
+    }
 
-        if (peek("\\\\") || peek(acceptedChars)) {
-            if(peek("\\\\"))
-                lexEscape();
-            else
-                match(acceptedChars);
+    /**
+     * Reports the token just scanned to the trace if one is set, returning its
+     * type. Every public lex method goes through here so that a trace sees the
+     * same tokens however they are lexed.
+     */
+    private Token.Type traced(Token.Type type, long start) {
+        if (trace != null) {
+            trace.token(type, chars.index - chars.length, chars.length, System.nanoTime() - start);
+        }
+        return type;
+    }
 
-            // Check for closing
-            if (peek("'")) {
-                match("'");
-                return chars.emit(Token.Type.CHARACTER);
-            } else {
-                throw new plc.project.ParseException("expected closing character quote", chars.index);
-            }
+    /**
+     * The scan methods below advance the char stream over the next token and
+     * return its type, leaving it to the caller to emit the token.
+     */
+    private Token.Type scanToken() {
+        escape = -1;
+        if (!chars.has(0)) {
+            throw new UnsupportedOperationException();
+        }
+        char c = chars.get(0);
+        if (is(c, IDENTIFIER_START)) {
+            return scanIdentifier();
+        } else if (is(c, DIGIT) || (is(c, SIGN) && chars.has(1) && is(chars.get(1), DIGIT))) {
+            return scanNumber();
+        } else if (c == '\'') {
+            return scanCharacter();
+        } else if (c == '"') {
+            return scanString();
+        } else if (!isLineTerminator(c)) {
+            return scanOperator();
+        }
+        throw new UnsupportedOperationException();
+    }
 
+    private Token.Type scanIdentifier() {
+        if (next(IDENTIFIER_START)) { // matches the first character for an Identifier
+            chars.advance();
+        }
+        while (next(IDENTIFIER_PART)) {
+            chars.advance();
         }
+        return Token.Type.IDENTIFIER;
+    }
 
-        throw new plc.project.ParseException("invalid character", chars.index); //TODO
+    private Token.Type scanNumber() {
+        if (next(SIGN)) {
+            chars.advance();
+        }
+        if (!next(DIGIT)) {
+            throw new UnsupportedOperationException();
+        }
+        while (next(DIGIT)) { // match until decimal
+            chars.advance();
+        }
+        if (!chars.has(0) || chars.get(0) != '.') {
+            return Token.Type.INTEGER;
+        }
+        chars.advance(); // match decimal
+        if (!next(DIGIT)) {
+            throw new plc.project.ParseException("Trailing decimal", chars.index);
+        }
+        while (next(DIGIT)) {
+            chars.advance();
+        }
+        return Token.Type.DECIMAL;
     }
 
-    public Token lexString() {
-        System.out.println("String found");
-        String acceptedChars = "[^\\\\\"\\n\\r]";
+    private Token.Type scanCharacter() {
+        if (chars.has(0) && chars.get(0) == '\'') {
+            chars.advance();
+        }
+        if (!chars.has(0) || chars.get(0) == '\'' || is(chars.get(0), LINE_END)) {
+            throw new plc.project.ParseException("invalid character", chars.index);
+        }
+        if (chars.get(0) == '\\') {
+            lexEscape();
+        } else {
+            chars.advance();
+        }
+        // check for closing
+        if (!chars.has(0) || chars.get(0) != '\'') {
+            throw new plc.project.ParseException("expected closing character quote", chars.index);
+        }
+        chars.advance();
+        return Token.Type.CHARACTER;
+    }
 
-        match("\""); // Start of String
-        while (!peek("\"")) {
-            if (peek("\\\\")) { // escape sequence started
-                lexEscape();
-            }
-            else if (peek(acceptedChars)) { // regular characters
-                match(acceptedChars);
-            }
-            else {
+    private Token.Type scanString() {
+        if (chars.has(0) && chars.get(0) == '"') { // start of string
+            chars.advance();
+        }
+        while (!chars.has(0) || chars.get(0) != '"') {
+            if (!chars.has(0) || is(chars.get(0), LINE_END)) {
                 throw new plc.project.ParseException("invalid string", chars.index);
+            } else if (chars.get(0) == '\\') { // escape sequence started
+                lexEscape();
+            } else { // regular characters
+                chars.advance();
             }
         }
-        match("\""); // End of String found
+        chars.advance(); // end of string found
+        return Token.Type.STRING;
+    }
 
-        return chars.emit(Token.Type.STRING);
+    private Token.Type scanOperator() {
+        if (!chars.has(0) || isLineTerminator(chars.get(0))) {
+            throw new UnsupportedOperationException();
+        }
+        char c = chars.get(0);
+        chars.advance();
+        // comparison operators are combined into a single token
+        if ((c == '<' || c == '>' || c == '!' || c == '=') && chars.has(0) && chars.get(0) == '=') {
+            chars.advance();
+        }
+        return Token.Type.OPERATOR;
     }
 
-    public void lexEscape() {
-        System.out.println("Escape found");
-        if (!match("\\\\")) {
-            throw new plc.project.ParseException("invalid escape sequence", chars.index);
-        } else {
-            if (!match("[bnrt'\"\\\\]"))
-                throw new plc.project.ParseException("invalid escape character", chars.index);
+    /**
+     * Decodes the characters of a string or character literal from {@code
+     * start} (inclusive) to {@code end} (exclusive), which should exclude the
+     * quotes, in a single pass. The index of the first escape is given by
+     * {@code escape}, or -1 if there are none, in which case the characters
+     * are returned as they are.
+     */
+    public static String decode(String source, int start, int end, int escape) {
+        if (escape < 0) {
+            return source.substring(start, end);
         }
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(source, start, escape);
+        for (int i = escape; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = unescape(source.charAt(++i));
+            }
+            builder.append(c);
+        }
+        return builder.toString();
     }
 
-    public Token lexOperator() {
-        System.out.println("Operator found");
-        if(match("<", "=") || match(">", "=") || match("!", "=") || match("=", "=")) {
-            return chars.emit(Token.Type.OPERATOR);
-        } else if(match("([<>!=] '='?|(.))")) {
-            return chars.emit(Token.Type.OPERATOR);
+    /**
+     * Returns the character represented by an escape, where any character
+     * other than {@code b}, {@code n}, {@code r}, and {@code t} represents
+     * itself (such as a quote or backslash).
+     */
+    private static char unescape(char c) {
+        switch (c) {
+            case 'b': return '\b';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            default: return c;
         }
-        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns true if the next character exists and belongs to any of the given
+     * character classes.
+     */
+    private boolean next(byte classes) {
+        return chars.has(0) && is(chars.get(0), classes);
+    }
+
+    private static boolean is(char c, byte classes) {
+        return c < CLASSES.length && (CLASSES[c] & classes) != 0;
+    }
+
+    /**
+     * Line terminators are the characters a regex {@code .} does not match,
+     * which previously excluded them from operators.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
     /**
@@ -212,23 +670,66 @@ public final class Lexer {
      * You should rely on peek/match for state management in nearly all cases.
      * The only field you need to access is {@link #index} for any {@link
      * ParseException} which is thrown.
+     *
+     * A {@link String} input is indexed directly. Other inputs are held in a
+     * buffer starting at the absolute index {@link #offset}, which is a window
+     * refilled as needed that only retains characters from the start of the
+     * current token.
      */
     public static final class CharStream {
 
+        private static final int WINDOW = 8192;
+
         private final String input;
+        private Reader reader;
+        private char[] buffer; // null for a String input, which is indexed directly
+        private int offset = 0;
+        private int limit;
         private int index = 0;
         private int length = 0;
 
+        /**
+         * Creates a char stream indexing the input directly, without copying
+         * it into a buffer.
+         */
         public CharStream(String input) {
+            this(input, 0, input.length());
+        }
+
+        /**
+         * Creates a char stream over the characters of the input from start
+         * (inclusive) to end (exclusive), keeping indices relative to the
+         * entire input.
+         */
+        public CharStream(String input, int start, int end) {
             this.input = input;
+            this.buffer = null;
+            this.index = start;
+            this.limit = end;
+        }
+
+        public CharStream(Reader reader) {
+            this.input = null;
+            this.reader = reader;
+            this.buffer = new char[WINDOW];
+            this.limit = 0;
+        }
+
+        /**
+         * Creates a char stream decoding UTF-8 from the bytes (such as a
+         * {@link java.nio.MappedByteBuffer}) as the window is filled.
+         */
+        public CharStream(ByteBuffer bytes) {
+            this(new ByteBufferReader(bytes));
         }
 
         public boolean has(int offset) {
-            return index + offset < input.length();
+            return index + offset < this.offset + limit || fill(index + offset);
         }
 
         public char get(int offset) {
-            return input.charAt(index + offset);
+            int position = index + offset - this.offset;
+            return buffer != null ? buffer[position] : input.charAt(position);
         }
 
         public void advance() {
@@ -243,9 +744,120 @@ public final class Lexer {
         public Token emit(Token.Type type) {
             int start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            String literal = buffer != null
+                    ? new String(buffer, start - offset, index - start)
+                    : input.substring(start, index);
+            return new Token(type, literal, start);
+        }
+
+        /**
+         * Records the current token in the buffer rather than creating a
+         * {@link Token} for it.
+         */
+        public void emit(Token.Type type, int symbol, TokenBuffer buffer) {
+            buffer.add(type, index - length, length, symbol);
+            skip();
+        }
+
+        /**
+         * Interns the literal of the current token, returning its symbol id.
+         */
+        public int intern(SymbolTable symbols) {
+            if (buffer == null) {
+                return symbols.intern(input, index - length, length);
+            }
+            return symbols.intern(buffer, index - length - offset, length);
         }
 
+        /**
+         * Reads from the reader until the character at the given absolute index
+         * is available, returning false if the input ends first.
+         */
+        private boolean fill(int position) {
+            if (reader == null) {
+                return false;
+            }
+            try {
+                while (position >= offset + limit) {
+                    int discard = index - length - offset; // characters before the current token
+                    if (discard > 0) {
+                        System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+                        offset += discard;
+                        limit -= discard;
+                    }
+                    if (buffer.length - limit < 2) { // leave room for a surrogate pair
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    int read = reader.read(buffer, limit, buffer.length - limit);
+                    if (read < 0) {
+                        reader.close();
+                        reader = null;
+                        return false;
+                    }
+                    limit += read;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    /**
+     * Decodes UTF-8 from a byte buffer without copying it to the heap first.
+     * ASCII bytes are never part of a multi-byte sequence in UTF-8, so runs of
+     * them are converted directly and only the remaining runs are passed to a
+     * {@link CharsetDecoder}.
+     */
+    private static final class ByteBufferReader extends Reader {
+
+        private final ByteBuffer bytes;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+        private ByteBufferReader(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            if (!bytes.hasRemaining()) {
+                return -1;
+            }
+            int position = bytes.position();
+            int limit = bytes.limit();
+            int count = 0;
+            while (count < length && position < limit) {
+                byte b = bytes.get(position);
+                if (b >= 0) {
+                    chars[offset + count++] = (char) b;
+                    position++;
+                } else {
+                    int end = position;
+                    while (end < limit && bytes.get(end) < 0) {
+                        end++;
+                    }
+                    ByteBuffer run = bytes.duplicate();
+                    run.position(position).limit(end);
+                    CharBuffer out = CharBuffer.wrap(chars, offset + count, length - count);
+                    CoderResult result = decoder.reset().decode(run, out, true);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    count = out.position() - offset;
+                    position = run.position();
+                    if (result.isOverflow()) {
+                        break;
+                    }
+                }
+            }
+            bytes.position(position);
+            return count;
+        }
+
+        @Override
+        public void close() {}
+
     }
 
 }
@@ -0,0 +1,80 @@
+package plc.project;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe {@link LexerTrace} recording the count, total length, and
+ * time spent for each token type.
+ */
+public final class LexerStatistics implements LexerTrace {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final AtomicLongArray counts = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray lengths = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray nanos = new AtomicLongArray(TYPES.length);
+
+    @Override
+    public void token(Token.Type type, int index, int length, long nanos) {
+        counts.incrementAndGet(type.ordinal());
+        lengths.addAndGet(type.ordinal(), length);
+        this.nanos.addAndGet(type.ordinal(), nanos);
+    }
+
+    public long getCount(Token.Type type) {
+        return counts.get(type.ordinal());
+    }
+
+    /**
+     * Returns the total number of characters in tokens of the given type.
+     */
+    public long getLength(Token.Type type) {
+        return lengths.get(type.ordinal());
+    }
+
+    public long getNanos(Token.Type type) {
+        return nanos.get(type.ordinal());
+    }
+
+    public long getCount() {
+        return sum(counts);
+    }
+
+    public long getLength() {
+        return sum(lengths);
+    }
+
+    public long getNanos() {
+        return sum(nanos);
+    }
+
+    /**
+     * Returns the number of token characters lexed per second of time spent
+     * lexing tokens, which excludes skipping whitespace.
+     */
+    public double getCharactersPerSecond() {
+        long nanos = getNanos();
+        return nanos == 0 ? 0 : getLength() * 1e9 / nanos;
+    }
+
+    private static long sum(AtomicLongArray array) {
+        long sum = 0;
+        for (int i = 0; i < array.length(); i++) {
+            sum += array.get(i);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LexerStatistics{");
+        for (Token.Type type : TYPES) {
+            builder.append(type).append("=[count=").append(getCount(type))
+                    .append(", length=").append(getLength(type))
+                    .append(", nanos=").append(getNanos(type))
+                    .append("], ");
+        }
+        return builder.append("charactersPerSecond=").append((long) getCharactersPerSecond()).append('}').toString();
+    }
+
+}
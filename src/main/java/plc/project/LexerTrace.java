@@ -0,0 +1,39 @@
+package plc.project;
+
+/**
+ * Receives events from the {@link Lexer} for diagnostics, set through {@link
+ * Lexer#setTrace(LexerTrace)}. Tracing is disabled by default.
+ */
+public interface LexerTrace {
+
+    /**
+     * Prints each token and escape as it is lexed, which is the output the
+     * lexer used to write unconditionally.
+     */
+    LexerTrace CONSOLE = new LexerTrace() {
+
+        @Override
+        public void token(Token.Type type, int index, int length, long nanos) {
+            System.out.println(type + " found at " + index);
+        }
+
+        @Override
+        public void escape(int index) {
+            System.out.println("Escape found at " + index);
+        }
+
+    };
+
+    /**
+     * Called after a token is lexed with its type, index, literal length, and
+     * the time spent lexing it.
+     */
+    void token(Token.Type type, int index, int length, long nanos);
+
+    /**
+     * Called when an escape sequence starts within a character or string
+     * literal.
+     */
+    default void escape(int index) {}
+
+}
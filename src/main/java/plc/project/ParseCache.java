@@ -0,0 +1,87 @@
+package plc.project;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A directory of parsed sources encoded with {@link AstCodec}, each in a file
+ * named by the SHA-256 hash of the source's UTF-8 bytes. An unchanged source is
+ * then loaded by hashing and decoding it, without lexing or parsing it at all.
+ *
+ * The cache is only an optimization: entries which can't be read or decoded
+ * (such as from an older {@link AstCodec#VERSION}) are parsed and written
+ * again, and failures to write an entry are ignored. Entries are written to a
+ * temporary file and moved into place, so concurrent processes sharing the
+ * directory never read a partial entry. Sources with syntax errors are not
+ * cached.
+ */
+public final class ParseCache {
+
+    private final Path directory;
+
+    public ParseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the parsed source of the UTF-8 file.
+     */
+    public Ast.Source parse(Path file) throws IOException, ParseException {
+        return parse(Files.readAllBytes(file));
+    }
+
+    public Ast.Source parse(String source) throws ParseException {
+        return parse(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Ast.Source parse(byte[] source) throws ParseException {
+        Path entry = directory.resolve(hash(source) + ".ast");
+        if (Files.isRegularFile(entry)) {
+            try {
+                return AstCodec.decode(Files.readAllBytes(entry));
+            } catch (IOException | IllegalArgumentException e) {
+                // parsed and written again below
+            }
+        }
+        Ast.Source ast = new Parser(new Lexer(new String(source, StandardCharsets.UTF_8)).lexBuffer()).parseSource();
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try {
+                Files.write(temporary, AstCodec.encode(ast));
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            // the source is parsed again next time
+        }
+        return ast;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the bytes in hexadecimal.
+     */
+    static String hash(byte[] source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source);
+            StringBuilder builder = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is supported by every Java platform.", e);
+        }
+    }
+
+}
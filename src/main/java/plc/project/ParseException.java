@@ -1,11 +1,21 @@
 package plc.project;
 
+/**
+ * A syntax error from the {@link Lexer} or {@link Parser}, reported as a
+ * message and the index in the source where it was found.
+ *
+ * The exception does not capture a stack trace, which costs far more than the
+ * rest of an error and says nothing about the source being parsed. Errors are
+ * thrown once where they are found and propagate unchanged, so recovering
+ * parses with many errors (see {@link Parser#parseSource(java.util.List)})
+ * stay cheap.
+ */
 public final class ParseException extends RuntimeException {
 
     private final int index;
 
     public ParseException(String message, int index) {
-        super(message);
+        super(message, null, false, false);
         this.index = index;
     }
 
@@ -3,6 +3,8 @@ package plc.project;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 
 /**
@@ -16,21 +18,100 @@ import java.util.regex.Pattern;
  *
  * This type of parser is called <em>recursive descent</em>. Each rule in our
  * grammar will have it's own function, and reference to other rules correspond
- * to calling that functions.
+ * to calling that functions. Expressions are the exception, and are parsed
+ * with explicit stacks (see {@link #parseBinaryExpression(int)}) so deeply
+ * nested ones cannot overflow the call stack.
  */
 public final class Parser {
 
+    private static final int LOGICAL = 1;
+    private static final int EQUALITY = 2;
+    private static final int ADDITIVE = 3;
+    private static final int MULTIPLICATIVE = 4;
+    private static final int SECONDARY = 5; // binds more tightly than any operator
+
+    /**
+     * The binary operators with their precedence and associativity. Adding an
+     * operator only requires an entry here (and support in the later stages).
+     */
+    private static final BinaryOperator[] OPERATORS = {
+            new BinaryOperator("AND", LOGICAL, false),
+            new BinaryOperator("OR", LOGICAL, false),
+            new BinaryOperator("!=", EQUALITY, true),
+            new BinaryOperator("==", EQUALITY, true),
+            new BinaryOperator(">=", EQUALITY, true),
+            new BinaryOperator(">", EQUALITY, true),
+            new BinaryOperator("<=", EQUALITY, true),
+            new BinaryOperator("<", EQUALITY, true),
+            new BinaryOperator("+", ADDITIVE, false),
+            new BinaryOperator("-", ADDITIVE, false),
+            new BinaryOperator("/", MULTIPLICATIVE, false),
+            new BinaryOperator("*", MULTIPLICATIVE, false),
+    };
+
+    /**
+     * Sources with fewer fields and methods than this are parsed sequentially
+     * by {@link #parseSourceParallel()}, as splitting them costs more than it
+     * saves.
+     */
+    public static final int PARALLEL_THRESHOLD = 64;
+
     private final TokenStream tokens;
+    private boolean lazy = false;
+    private List<ParseException> errors = null; // set while parsing with recovery
+
+    // stacks for parseBinaryExpression, reused between expressions since it is
+    // never reentered (it only calls parsePrimaryExpression for leaves)
+    private final List<Ast.Expr> operands = new ArrayList<>();
+    private final List<BinaryOperator> operators = new ArrayList<>();
+    private final List<Frame> frames = new ArrayList<>();
 
     public Parser(List<Token> tokens) {
-        this.tokens = new TokenStream(tokens);
+        this.tokens = new ListTokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser reading directly from a {@link TokenBuffer}, which only
+     * materializes the literals the parser actually needs.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = new BufferTokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser which pulls tokens from the lexer as they are needed,
+     * only retaining a small window of tokens around the current position.
+     * Combined with {@link Lexer#Lexer(java.io.Reader)}, this parses the input
+     * without holding either the source or the tokens in memory.
+     */
+    public Parser(Lexer lexer) {
+        this.tokens = new LexerTokenStream(lexer);
+    }
+
+    private Parser(TokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Sets whether method bodies are parsed lazily (default false). A lazy
+     * method skims its body to the matching {@code END} (as in {@link
+     * #skim()}) and only parses its statements when they are first requested
+     * through {@link Ast.Method#getStatements()}, so syntax errors in a body
+     * are thrown from there instead. Bodies where the skim cannot be sure of
+     * the matching {@code END}, such as those using {@code END} as a name, are
+     * parsed eagerly (see {@link #skimBody()}), so lazy parsing accepts the
+     * same sources. This has no effect on parsers streaming from a {@link
+     * Lexer}, which cannot go back.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
     }
 
     private ParseException errorHandle(String message) {
         if (tokens.has(0)) {
-            return new ParseException(message, tokens.get(0).getIndex());
+            return new ParseException(message, tokens.getIndex(0));
         } else {
-            return new ParseException(message, (tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length()));
+            return new ParseException(message, (tokens.getIndex(-1) + tokens.getLength(-1)));
         }
     }
 
@@ -39,20 +120,331 @@ public final class Parser {
      */
     // source ::= field* method*
     public Ast.Source parseSource() throws ParseException {
+        List<Ast.Field> fields = new ArrayList<>();
+        List<Ast.Method> methods = new ArrayList<>();
+        while (tokens.has(0)) {
+            if (match(SymbolTable.LET)) {
+                fields.add(parseField());
+            } else if (match(SymbolTable.DEF)) {
+                methods.add(parseMethod());
+            } else {
+                throw errorHandle("Expected LET or DEF");
+            }
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    /**
+     * Parses the {@code source} rule in the same way as {@link #parseSource()},
+     * but instead of throwing on a syntax error records the exception in
+     * {@code errors}, skips to a synchronization point, and continues. This
+     * reports many errors in one pass, and returns the fields and methods which
+     * parsed.
+     *
+     * Within a block, a failed statement is skipped past the next {@code ;} or
+     * up to the next {@code END}, {@code ELSE}, {@code DEF}, or {@code LET}
+     * (see {@link #parseStatement(List)}), so the rest of the method is still
+     * checked. Any other error drops the field or method and skips to the next
+     * {@code LET} or {@code DEF}. Method bodies are always parsed eagerly so
+     * their errors are reported.
+     */
+    public Ast.Source parseSource(List<ParseException> errors) {
+        this.errors = errors;
         try {
             List<Ast.Field> fields = new ArrayList<>();
             List<Ast.Method> methods = new ArrayList<>();
             while (tokens.has(0)) {
-                if (match("LET")) {
-                    fields.add(parseField());
-                } else if (match("DEF")) {
-                    methods.add(parseMethod());
+                try {
+                    if (match(SymbolTable.LET)) {
+                        fields.add(parseField());
+                    } else if (match(SymbolTable.DEF)) {
+                        methods.add(parseMethod());
+                    } else {
+                        throw errorHandle("Expected LET or DEF");
+                    }
+                } catch (ParseException e) {
+                    errors.add(e);
+                    while (tokens.has(0) && !peek(SymbolTable.LET) && !peek(SymbolTable.DEF)) {
+                        tokens.advance();
+                    }
                 }
             }
             return new Ast.Source(fields, methods);
-        } catch (ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
+        } finally {
+            this.errors = null;
+        }
+    }
+
+    /**
+     * Parses the {@code source} rule in the same way as {@link #parseSource()}
+     * using the common {@link ForkJoinPool}.
+     */
+    public Ast.Source parseSourceParallel() throws ParseException {
+        return parseSourceParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses the {@code source} rule in the same way as {@link #parseSource()},
+     * but in two phases: {@link #skim()} first finds where each field and
+     * method ends by scanning tokens, then chunks of them are parsed in
+     * parallel and assembled in their original order.
+     *
+     * If the source cannot be split, or any chunk fails (including when a
+     * member doesn't end where the skim expected), it is parsed sequentially
+     * instead so errors are exactly those of {@link #parseSource()}. This
+     * requires the parser to have been created with a token list or buffer,
+     * and falls back to {@link #parseSource()} for sources with fewer than
+     * {@link #PARALLEL_THRESHOLD} members.
+     */
+    public Ast.Source parseSourceParallel(ForkJoinPool pool) throws ParseException {
+        if (tokens instanceof LexerTokenStream) {
+            throw new IllegalStateException("Parallel parsing requires a token list or buffer.");
+        }
+        List<int[]> members = skim();
+        if (members == null || members.size() < PARALLEL_THRESHOLD) {
+            return parseSource();
+        }
+        int size = Math.max(PARALLEL_THRESHOLD / 4, members.size() / (4 * pool.getParallelism()));
+        List<Chunk> chunks = new ArrayList<>();
+        for (int start = 0; start < members.size(); start += size) {
+            chunks.add(new Chunk(tokens, members.subList(start, Math.min(start + size, members.size())), lazy));
+        }
+        pool.invoke(new RecursiveAction() {
+
+            @Override
+            protected void compute() {
+                invokeAll(chunks);
+            }
+
+        });
+        List<Ast.Field> fields = new ArrayList<>();
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.failed) {
+                return parseSource();
+            }
+            fields.addAll(chunk.fields);
+            methods.addAll(chunk.methods);
+        }
+        int end = members.get(members.size() - 1)[2];
+        for (int i = 0; i < end; i++) {
+            tokens.advance();
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    /**
+     * Parses the {@code source} rule in the same way as {@link #parseSource()}
+     * after an edit changed the tokens from offset {@code start} (inclusive) to
+     * {@code end} (exclusive), as returned by {@link Lexer#relex(TokenBuffer,
+     * int, int, String)}. The fields and methods of {@code previous}, the
+     * source parsed before the edit, are reused (as the same instances) for
+     * members whose tokens are entirely before or after the edit, and only the
+     * members touching it are parsed. Results cached by member identity, such
+     * as from analysis, therefore stay valid for the unchanged members.
+     *
+     * Members are found by {@link #skim()}, falling back to {@link
+     * #parseSource()} if it fails or a member fails at its end, so errors are
+     * exactly those of a full parse. As with lazy methods, sources using
+     * {@code DO} or {@code END} as names must be parsed fully. Lazy methods
+     * whose bodies were never parsed are parsed again, since their tokens may
+     * have been changed by the edit.
+     */
+    public Ast.Source parseSource(Ast.Source previous, int start, int end) throws ParseException {
+        if (tokens instanceof LexerTokenStream) {
+            throw new IllegalStateException("Incremental parsing requires a token list or buffer.");
+        }
+        List<int[]> members = skim();
+        if (members == null) {
+            return parseSource();
+        }
+        int before = 0; // members ending before the edit
+        while (before < members.size() && members.get(before)[2] <= start) {
+            before++;
+        }
+        int after = members.size(); // first of the members starting after the edit
+        while (after > before && members.get(after - 1)[1] - 1 >= end) {
+            after--;
+        }
+        // fields and methods, reused from the start and end of the previous source
+        int[] reused = new int[4];
+        for (int i = 0; i < members.size(); i++) {
+            if (i < before || i >= after) {
+                reused[(i < before ? 0 : 2) + (members.get(i)[0] == SymbolTable.LET ? 0 : 1)]++;
+            }
+        }
+        if (reused[0] + reused[2] > previous.getFields().size() || reused[1] + reused[3] > previous.getMethods().size()) {
+            return parseSource(); // the previous source doesn't match the skim
+        }
+        List<Ast.Field> fields = new ArrayList<>();
+        List<Ast.Method> methods = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            int[] member = members.get(i);
+            if (i < before || i >= after) {
+                if (member[0] == SymbolTable.LET) {
+                    int index = i < before ? fields.size() : previous.getFields().size() - reused[2]--;
+                    fields.add(previous.getFields().get(index));
+                    continue;
+                }
+                int index = i < before ? methods.size() : previous.getMethods().size() - reused[3]--;
+                if (previous.getMethods().get(index).isParsed()) {
+                    methods.add(previous.getMethods().get(index));
+                    continue;
+                }
+            }
+            Parser parser = new Parser(tokens.slice(member[1], member[2]));
+            parser.setLazy(lazy);
+            try {
+                if (member[0] == SymbolTable.LET) {
+                    fields.add(parser.parseField());
+                } else {
+                    methods.add(parser.parseMethod());
+                }
+            } catch (ParseException e) {
+                if (!parser.tokens.has(0)) {
+                    return parseSource(); // the error may depend on the tokens after the member
+                }
+                throw e;
+            }
+            if (parser.tokens.has(0)) { // the member ended before the skim expected
+                return parseSource();
+            }
+        }
+        while (tokens.has(0)) {
+            tokens.advance();
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    /**
+     * Finds the fields and methods of the source without parsing them. Each is
+     * returned as its keyword ({@link SymbolTable#LET} or {@link
+     * SymbolTable#DEF}), the offset of the token after it, and the offset
+     * after its last token. Fields end at their first {@code ;}, and methods
+     * at the {@code END} matching their first {@code DO}, since every {@code
+     * DO} in a method (and only those) opens a block closed by {@code END}.
+     *
+     * Returns {@code null} if the tokens don't follow that structure, leaving
+     * the error to be found by parsing sequentially.
+     */
+    private List<int[]> skim() {
+        List<int[]> members = new ArrayList<>();
+        int offset = 0;
+        while (tokens.has(offset)) {
+            int keyword = tokens.getSymbol(offset);
+            int start = ++offset;
+            if (keyword == SymbolTable.LET) {
+                while (tokens.has(offset) && !tokens.matches(offset, ";")) {
+                    offset++;
+                }
+            } else if (keyword == SymbolTable.DEF) {
+                while (tokens.has(offset) && tokens.getSymbol(offset) != SymbolTable.DO) {
+                    offset++;
+                }
+                offset = skimBlock(offset + 1);
+                if (offset < 0) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+            if (!tokens.has(offset)) {
+                return null;
+            }
+            members.add(new int[] {keyword, start, ++offset});
+        }
+        return members;
+    }
+
+    /**
+     * Returns the offset of the {@code END} closing a block whose statements
+     * start at the given offset, counting nested {@code DO} blocks, or -1 if
+     * there is none.
+     */
+    private int skimBlock(int offset) {
+        int depth = 1;
+        for (; tokens.has(offset); offset++) {
+            int symbol = tokens.getSymbol(offset);
+            if (symbol == SymbolTable.DO) {
+                depth++;
+            } else if (symbol == SymbolTable.END && --depth == 0) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the offset of the {@code END} closing the method body starting
+     * at the current token, as in {@link #skimBlock(int)}, or -1 if the body
+     * should be parsed eagerly instead.
+     *
+     * An {@code END} used as a name would close the body early, so the body is
+     * parsed eagerly if any {@code END} in it follows an operator (other than
+     * {@code ;} or {@code )}) or an expression keyword, or is followed by an
+     * operator, or if the matched {@code END} isn't followed by the next field
+     * or method. A {@code DO} used as a name without such an {@code END} leaves
+     * the body unclosed, which also falls back.
+     */
+    private int skimBody() {
+        int depth = 1;
+        for (int offset = 0; tokens.has(offset); offset++) {
+            int symbol = tokens.getSymbol(offset);
+            if (symbol == SymbolTable.DO) {
+                depth++;
+            } else if (symbol == SymbolTable.END) {
+                if (isName(offset)) {
+                    return -1;
+                } else if (--depth == 0) {
+                    boolean member = !tokens.has(offset + 1)
+                            || tokens.getSymbol(offset + 1) == SymbolTable.DEF
+                            || tokens.getSymbol(offset + 1) == SymbolTable.LET;
+                    return member ? offset : -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the {@code END} at the offset may be used as a name,
+     * judging by the tokens around it.
+     */
+    private boolean isName(int offset) {
+        if (tokens.has(offset + 1) && tokens.getType(offset + 1) == Token.Type.OPERATOR) {
+            return true;
+        } else if (tokens.getType(offset - 1) == Token.Type.OPERATOR) {
+            return !tokens.matches(offset - 1, ";") && !tokens.matches(offset - 1, ")");
+        }
+        switch (tokens.getSymbol(offset - 1)) {
+            case SymbolTable.LET:
+            case SymbolTable.IF:
+            case SymbolTable.FOR:
+            case SymbolTable.IN:
+            case SymbolTable.WHILE:
+            case SymbolTable.RETURN:
+            case SymbolTable.AND:
+            case SymbolTable.OR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Parses the statements of a lazy method's body up to its {@code END},
+     * which is the last token of the stream.
+     */
+    private List<Ast.Stmt> parseBlock() throws ParseException {
+        List<Ast.Stmt> statements = new ArrayList<>();
+        while (!match(SymbolTable.END) && tokens.has(0)) {
+            parseStatement(statements);
         }
+        if (tokens.has(0) || tokens.getSymbol(-1) != SymbolTable.END) {
+            // the skim matched the wrong END, since DO or END was used as a name
+            throw new ParseException("missing END", tokens.getIndex(-1));
+        }
+        return statements;
     }
 
     /**
@@ -60,16 +452,12 @@ public final class Parser {
      */
     // field  ::= 'LET' identifier ':' identifier ( '=' expression )? ';'
     public Ast.Field parseField() throws ParseException {
-        try {
-            Ast.Stmt.Declaration declaration = parseDeclarationStatement();
-            if (declaration.getTypeName().isPresent()) {
-                return new Ast.Field(declaration.getName(), declaration.getTypeName().get(), declaration.getValue());
-            }
-
-            return new Ast.Field(declaration.getName(), declaration.getValue());
-        } catch (ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
+        Ast.Stmt.Declaration declaration = parseDeclarationStatement();
+        if (declaration.getTypeName().isPresent()) {
+            return new Ast.Field(declaration.getName(), declaration.getTypeName().get(), declaration.getValue());
         }
+
+        return new Ast.Field(declaration.getName(), declaration.getValue());
     }
 
     /**
@@ -78,69 +466,76 @@ public final class Parser {
      */
     // method ::= 'DEF' identifier '(' (identifier (',' identifier)*)? ')' 'DO' statement* 'END'
     public Ast.Method parseMethod() throws ParseException {
-        try {
-            if (match(Token.Type.IDENTIFIER)) {
+        if (match(Token.Type.IDENTIFIER)) {
 
-                String functionName = tokens.get(-1).getLiteral();
+            String functionName = tokens.getLiteral(-1);
 
-                if (match("(")) {
+            if (match("(")) {
 
-                    List<String> params = new ArrayList<>();
-                    List<String> paramTypes = new ArrayList<>();
+                List<String> params = new ArrayList<>();
+                List<String> paramTypes = new ArrayList<>();
 
-                    // get all params
-                    while (match(Token.Type.IDENTIFIER)) {
+                // get all params
+                while (match(Token.Type.IDENTIFIER)) {
 
-                        params.add(tokens.get(-1).getLiteral());
+                    params.add(tokens.getLiteral(-1));
 
-                        if (match(":", Token.Type.IDENTIFIER)) {
-                            // Type is required
-                            paramTypes.add(tokens.get(-1).getLiteral());
-                        } else {
-                            // Type not found
-                            throw errorHandle("Type not found while parsing method parameters");
-                        }
+                    if (match(":", Token.Type.IDENTIFIER)) {
+                        // Type is required
+                        paramTypes.add(tokens.getLiteral(-1));
+                    } else {
+                        // Type not found
+                        throw errorHandle("Type not found while parsing method parameters");
+                    }
 
-                        if (!match(",")) {
-                            if (!peek(")")) {
-                                throw errorHandle("Expected comma between identifiers");
-                            }
+                    if (!match(",")) {
+                        if (!peek(")")) {
+                            throw errorHandle("Expected comma between identifiers");
                         }
                     }
+                }
 
-                    // check for closing parenthesis
-                    if (!match(")")) {
-                        throw errorHandle("Expected Parenthesis");
-                    }
+                // check for closing parenthesis
+                if (!match(")")) {
+                    throw errorHandle("Expected Parenthesis");
+                }
 
-                    Optional<String> returnType = Optional.empty();
-                    // check for return type
-                    if (match(":", Token.Type.IDENTIFIER)) {
-                        returnType = Optional.of(tokens.get(-1).getLiteral());
-                    }
+                Optional<String> returnType = Optional.empty();
+                // check for return type
+                if (match(":", Token.Type.IDENTIFIER)) {
+                    returnType = Optional.of(tokens.getLiteral(-1));
+                }
 
-                    // check for DO
-                    if (!match("DO")) {
-                        throw errorHandle("Expected DO statement");
-                    }
+                // check for DO
+                if (!match(SymbolTable.DO)) {
+                    throw errorHandle("Expected DO statement");
+                }
 
-                    // get all statements
-                    List<Ast.Stmt> statements = new ArrayList<>();
-                    while (!match("END") && tokens.has(0)) {
-                        statements.add(parseStatement());
+                int end = lazy && errors == null && !(tokens instanceof LexerTokenStream) ? skimBody() : -1;
+                if (end >= 0) {
+                    // each attempt parses a fresh slice, so a failure is thrown again on retry
+                    TokenStream body = tokens.slice(0, end + 1);
+                    int length = end + 1;
+                    for (int i = 0; i <= end; i++) {
+                        tokens.advance();
                     }
-                    if(!tokens.get(-1).getLiteral().equals("END")) {
-                        throw new ParseException("missing END", tokens.get(-1).getIndex());
-                    }
-                    return new Ast.Method(functionName, params, paramTypes, returnType, statements);
-                } else {
-                    throw errorHandle("Expected Parenthesis");
+                    return new Ast.Method(functionName, params, paramTypes, returnType, () -> new Parser(body.slice(0, length)).parseBlock());
+                }
+
+                // get all statements
+                List<Ast.Stmt> statements = new ArrayList<>();
+                while (!match(SymbolTable.END) && tokens.has(0)) {
+                    parseStatement(statements);
+                }
+                if(tokens.getSymbol(-1) != SymbolTable.END) {
+                    throw new ParseException("missing END", tokens.getIndex(-1));
                 }
+                return new Ast.Method(functionName, params, paramTypes, returnType, statements);
             } else {
-                throw errorHandle("Expected Identifier");
+                throw errorHandle("Expected Parenthesis");
             }
-        } catch (ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
+        } else {
+            throw errorHandle("Expected Identifier");
         }
     }
 
@@ -157,36 +552,62 @@ public final class Parser {
     //    'RETURN' expression ';' |
     //    expression ('=' expression)? ';'
     public Ast.Stmt parseStatement() throws ParseException {
-        try {
-            if (match("LET")) {
-                return parseDeclarationStatement();
-            } else if (match("IF")) {
-                return parseIfStatement();
-            } else if (match("FOR")) {
-                return parseForStatement();
-            } else if (match("WHILE")) {
-                return parseWhileStatement();
-            } else if (match("RETURN")) {
-                return parseReturnStatement();
-            } else {
-                Ast.Stmt.Expr lhs = parseExpression();
-                if (!match("=")) {
-                    if (!match(";")) {
-                        throw new ParseException("Expected semicolon", tokens.get(-1).getIndex());
-                    }
-                    return new Ast.Stmt.Expression(lhs);
+        if (match(SymbolTable.LET)) {
+            return parseDeclarationStatement();
+        } else if (match(SymbolTable.IF)) {
+            return parseIfStatement();
+        } else if (match(SymbolTable.FOR)) {
+            return parseForStatement();
+        } else if (match(SymbolTable.WHILE)) {
+            return parseWhileStatement();
+        } else if (match(SymbolTable.RETURN)) {
+            return parseReturnStatement();
+        } else {
+            Ast.Stmt.Expr lhs = parseExpression();
+            if (!match("=")) {
+                if (!match(";")) {
+                    throw new ParseException("Expected semicolon", tokens.getIndex(-1));
                 }
+                return new Ast.Stmt.Expression(lhs);
+            }
 
-                Ast.Stmt.Expr rhs = parseExpression();
+            Ast.Stmt.Expr rhs = parseExpression();
 
-                if (!match(";")) {
-                    throw new ParseException("Expected semicolon", tokens.get(-1).getIndex());
-                }
-                return new Ast.Stmt.Assignment(lhs, rhs);
+            if (!match(";")) {
+                throw new ParseException("Expected semicolon", tokens.getIndex(-1));
             }
+            return new Ast.Stmt.Assignment(lhs, rhs);
+        }
+    }
 
-        } catch (ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
+    /**
+     * Parses a statement into the statements of a block. When recovering from
+     * errors, a failed statement is recorded and skipped past the next {@code
+     * ;}, or up to the next {@code END}, {@code ELSE}, {@code DEF}, or {@code
+     * LET}, so the rest of the block is still parsed. Reaching a {@code DEF}
+     * means the block is missing its {@code END}, which is reported for each
+     * enclosing block and drops the method.
+     */
+    private void parseStatement(List<Ast.Stmt> statements) throws ParseException {
+        if (errors == null) {
+            statements.add(parseStatement());
+            return;
+        }
+        if (peek(SymbolTable.DEF)) {
+            throw errorHandle("missing END");
+        }
+        int start = tokens.index;
+        try {
+            statements.add(parseStatement());
+        } catch (ParseException e) {
+            errors.add(e);
+            while (tokens.has(0) && !match(";")) {
+                if (tokens.index > start && (peek(SymbolTable.END) || peek(SymbolTable.ELSE)
+                        || peek(SymbolTable.DEF) || peek(SymbolTable.LET))) {
+                    break;
+                }
+                tokens.advance();
+            }
         }
     }
 
@@ -198,12 +619,12 @@ public final class Parser {
     //    'LET' identifier ( ':' identifier )? | expression ) ( '=' expression )? ';'
     public Ast.Stmt.Declaration parseDeclarationStatement() throws ParseException {
         if (match(Token.Type.IDENTIFIER)) {
-            String identifier = tokens.get(-1).getLiteral();
+            String identifier = tokens.getLiteral(-1);
             Optional<String> type = Optional.empty();
             // check for type
             if (match(":")) {
                 if (match(Token.Type.IDENTIFIER)) {
-                    type = Optional.of(tokens.get(-1).getLiteral());
+                    type = Optional.of(tokens.getLiteral(-1));
                 }
             }
 
@@ -231,27 +652,23 @@ public final class Parser {
     // 'IF' expression 'DO' statement* ('ELSE' statement*)? 'END'
     public Ast.Stmt.If parseIfStatement() throws ParseException {
         Ast.Expr expression = parseExpression();
-        if (match("DO")) {
+        if (match(SymbolTable.DO)) {
             boolean isElse = false;
             List<Ast.Stmt> doStatements = new ArrayList<>();
             List<Ast.Stmt> elseStatements = new ArrayList<>();
 
-            while (!match("END") && tokens.has(0)) {
-                if (match("ELSE")) {
+            while (!match(SymbolTable.END) && tokens.has(0)) {
+                if (match(SymbolTable.ELSE)) {
                     if (!isElse) {
                         isElse = true;
                     } else {
                         throw errorHandle("Too many ELSE Statements");
                     }
                 }
-                if (isElse) {
-                    elseStatements.add(parseStatement());
-                } else {
-                    doStatements.add(parseStatement());
-                }
+                parseStatement(isElse ? elseStatements : doStatements);
             }
-            if(!tokens.get(-1).getLiteral().equals("END")) {
-                throw new ParseException("Missing END", tokens.get(-1).getIndex());
+            if(tokens.getSymbol(-1) != SymbolTable.END) {
+                throw new ParseException("Missing END", tokens.getIndex(-1));
             }
 
             return new Ast.Stmt.If(expression, doStatements, elseStatements);
@@ -267,22 +684,22 @@ public final class Parser {
     //    'FOR' identifier 'IN' expression 'DO' statement* 'END'
     public Ast.Stmt.For parseForStatement() throws ParseException {
         if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
-            if (!match("IN")) {
+            String name = tokens.getLiteral(-1);
+            if (!match(SymbolTable.IN)) {
                 throw errorHandle("Expected IN");
             }
 
             Ast.Expr expression = parseExpression();
-            if (!match("DO")) {
+            if (!match(SymbolTable.DO)) {
                 throw errorHandle("Expected DO");
             }
 
             List<Ast.Stmt> statements = new ArrayList<>();
 
-            while (!match("END") && tokens.has(0)) {
-                statements.add(parseStatement());
+            while (!match(SymbolTable.END) && tokens.has(0)) {
+                parseStatement(statements);
             }
-            if(!tokens.get(-1).getLiteral().equals("END")) {
+            if(tokens.getSymbol(-1) != SymbolTable.END) {
                 throw errorHandle("Missing END");
             }
 
@@ -298,17 +715,17 @@ public final class Parser {
      */
     public Ast.Stmt.While parseWhileStatement() throws ParseException {
         Ast.Expr expression = parseExpression();
-        if (!match("DO")) {
+        if (!match(SymbolTable.DO)) {
             throw errorHandle("Expected DO");
         }
 
         List<Ast.Stmt> statements = new ArrayList<>();
 
-        while (!match("END") && tokens.has(0)) {
-            statements.add(parseStatement());
+        while (!match(SymbolTable.END) && tokens.has(0)) {
+            parseStatement(statements);
         }
-        if(!tokens.get(-1).getLiteral().equals("END")) {
-            throw new ParseException("missing END", tokens.get(-1).getIndex());
+        if(tokens.getSymbol(-1) != SymbolTable.END) {
+            throw new ParseException("missing END", tokens.getIndex(-1));
         }
 
         return new Ast.Stmt.While(expression, statements);
@@ -331,11 +748,7 @@ public final class Parser {
      * Parses the {@code expression} rule.
      */
     public Ast.Expr parseExpression() throws ParseException {
-        try {
-            return parseLogicalExpression();
-        } catch (ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
-        }
+        return parseBinaryExpression(LOGICAL);
     }
 
     /**
@@ -343,22 +756,7 @@ public final class Parser {
      */
     // logical_expression ::= comparison_expression (('AND' | 'OR') comparison_expression)*
     public Ast.Expr parseLogicalExpression() throws ParseException {
-        try {
-
-            Ast.Expr output = parseEqualityExpression();
-
-            while (match("AND") || match("OR")) { // right
-
-                String operation = tokens.get(-1).getLiteral();
-                Ast.Expr rightExpr = parseEqualityExpression();
-                output = new Ast.Expr.Binary(operation, output, rightExpr);
-
-            }
-            return output;
-
-        } catch(ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
-        }
+        return parseBinaryExpression(LOGICAL);
     }
 
     /**
@@ -366,59 +764,162 @@ public final class Parser {
      */
     // comparison_expression ::= additive_expression (('<' | '<=' | '>' | '>=' | '==' | '!=') additive_expression)*
     public Ast.Expr parseEqualityExpression() throws ParseException {
-        try {
-            Ast.Expr output = parseAdditiveExpression();
-            while (match("!=")
-                    || match("==")
-                    || match(">=")
-                    || match(">")
-                    || match("<=")
-                    || match("<")) {
-                String operation = tokens.get(-1).getLiteral();
-                Ast.Expr rightExpr = parseEqualityExpression();
-                output = new Ast.Expr.Binary(operation, output, rightExpr);
-            }
-            return output;
-        } catch(ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
-        }
+        return parseBinaryExpression(EQUALITY);
     }
 
     /**
      * Parses the {@code additive-expression} rule.
      */
     public Ast.Expr parseAdditiveExpression() throws ParseException {
-        try {
-            Ast.Expr output = parseMultiplicativeExpression();
+        return parseBinaryExpression(ADDITIVE);
+    }
+
+    /**
+     * Parses the {@code multiplicative-expression} rule.
+     */
+    public Ast.Expr parseMultiplicativeExpression() throws ParseException {
+        return parseBinaryExpression(MULTIPLICATIVE);
+    }
 
-            while (match("+") || match("-")) {
-                String operation = tokens.get(-1).getLiteral();
-                Ast.Expr rightExpr = parseMultiplicativeExpression();
-                output = new Ast.Expr.Binary(operation, output, rightExpr);
+    /**
+     * Parses a chain of binary operators binding at least as tightly as the
+     * given precedence, using a single loop over {@link #OPERATORS} instead of
+     * a rule (and call) per precedence level.
+     *
+     * Rather than recursing for each right operand, group, and argument list,
+     * operands and operators are kept on explicit stacks so the depth of an
+     * expression is only bounded by the heap. An operator reduces the ones
+     * before it binding at least as tightly (more tightly if it is
+     * right-associative), and each group or call being parsed is a {@link
+     * Frame} covering the top of the operator stack, which is reduced when the
+     * nested expression ends.
+     */
+    private Ast.Expr parseBinaryExpression(int precedence) throws ParseException {
+        operands.clear(); // left over if the last expression failed
+        operators.clear();
+        frames.clear();
+        Ast.Expr operand = null; // null while expecting the start of an operand
+        while (true) {
+            if (operand == null) {
+                if (match("(")) {
+                    frames.add(new Frame(null, null, operators.size()));
+                } else if (peekFunction()) {
+                    String name = tokens.getLiteral(0);
+                    tokens.advance();
+                    tokens.advance();
+                    if (match(")")) {
+                        operand = new Ast.Expr.Function(Optional.empty(), name, Collections.emptyList());
+                    } else {
+                        frames.add(new Frame(null, name, operators.size()));
+                    }
+                } else {
+                    operand = parsePrimaryExpression();
+                }
+                continue;
+            }
+            if (match(".")) {
+                if (!match(Token.Type.IDENTIFIER)) {
+                    throw new ParseException("Invalid Identifier", tokens.getIndex(0));
+                }
+                String name = tokens.getLiteral(-1);
+                if (!match("(")) {
+                    operand = new Ast.Expr.Access(Optional.of(operand), name);
+                } else if (match(")")) {
+                    operand = new Ast.Expr.Function(Optional.of(operand), name, new ArrayList<>());
+                } else {
+                    frames.add(new Frame(operand, name, operators.size()));
+                    operand = null;
+                }
+                continue;
+            }
+            operands.add(operand);
+            operand = null;
+            boolean nested = !frames.isEmpty();
+            int base = nested ? frames.get(frames.size() - 1).operators : 0;
+            BinaryOperator operator = peekBinaryOperator();
+            if (operator != null && operator.precedence >= (nested ? LOGICAL : precedence)) {
+                tokens.advance();
+                while (operators.size() > base && binds(operators.get(operators.size() - 1), operator)) {
+                    reduce();
+                }
+                operators.add(operator);
+                continue;
+            }
+            while (operators.size() > base) {
+                reduce();
+            }
+            Ast.Expr expression = operands.remove(operands.size() - 1);
+            if (!nested) {
+                return expression;
+            }
+            Frame frame = frames.remove(frames.size() - 1);
+            if (frame.name == null) {
+                if (!match(")")) {
+                    throw new ParseException("Expected closing parenthesis", tokens.getIndex(-1));
+                }
+                operand = new Ast.Expr.Group(expression);
+            } else {
+                frame.arguments.add(expression);
+                if (match(",")) {
+                    frames.add(frame);
+                } else if (match(")")) {
+                    operand = new Ast.Expr.Function(Optional.ofNullable(frame.receiver), frame.name, frame.arguments);
+                } else if (frame.receiver != null) {
+                    throw new ParseException("Invalid function closing parentheses not found", tokens.getIndex(0));
+                } else {
+                    throw new ParseException("Closing parentheses expected", tokens.getIndex(-1));
+                }
             }
-            return output;
+        }
+    }
 
-        } catch(ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
+    /**
+     * Returns true if the current tokens start a function call, which are an
+     * identifier other than a literal keyword followed by {@code (}.
+     */
+    private boolean peekFunction() {
+        if (!peek(Token.Type.IDENTIFIER) || !tokens.has(1) || !tokens.matches(1, "(")) {
+            return false;
         }
+        int symbol = tokens.getSymbol(0);
+        return symbol != SymbolTable.NIL && symbol != SymbolTable.TRUE && symbol != SymbolTable.FALSE;
     }
 
     /**
-     * Parses the {@code multiplicative-expression} rule.
+     * Returns true if the operator on the stack should be reduced before the
+     * next one is pushed.
      */
-    public Ast.Expr parseMultiplicativeExpression() throws ParseException {
-        try {
-            Ast.Expr output = parseSecondaryExpression();
+    private static boolean binds(BinaryOperator previous, BinaryOperator next) {
+        return previous.precedence > next.precedence
+                || previous.precedence == next.precedence && !next.rightAssociative;
+    }
+
+    /**
+     * Replaces the top two operands with the top operator applied to them.
+     */
+    private void reduce() {
+        Ast.Expr right = operands.remove(operands.size() - 1);
+        Ast.Expr left = operands.remove(operands.size() - 1);
+        operands.add(new Ast.Expr.Binary(operators.remove(operators.size() - 1).literal, left, right));
+    }
 
-            while (match("/") || match("*")) { // right
-                String operation = tokens.get(-1).getLiteral();
-                Ast.Expr rightExpr = parseSecondaryExpression();
-                output = new Ast.Expr.Binary(operation, output, rightExpr);
+    /**
+     * Returns the binary operator of the current token, or {@code null} if it
+     * is not one.
+     */
+    private BinaryOperator peekBinaryOperator() {
+        if (!tokens.has(0)) {
+            return null;
+        }
+        Token.Type type = tokens.getType(0);
+        if (type == Token.Type.OPERATOR || type == Token.Type.IDENTIFIER) {
+            for (BinaryOperator operator : OPERATORS) {
+                if (tokens.matches(0, operator.literal)) {
+                    return operator;
+                }
             }
-            return output;
-        } catch(ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
         }
+        return null;
     }
 
     /**
@@ -426,37 +927,7 @@ public final class Parser {
      */
     // secondary_expression ::= primary_expression ('.' identifier ('(' (expression (',' expression)*)? ')')?)*
     public Ast.Expr parseSecondaryExpression() throws ParseException {
-        try {
-          Ast.Expr initialExpr = parsePrimaryExpression();
-
-          while (match(".")) {
-              if (!match(Token.Type.IDENTIFIER)) {
-                  throw new ParseException("Invalid Identifier", tokens.get(0).getIndex());
-              }
-              // Identifier found
-              String receiver = tokens.get(-1).getLiteral();
-              if (!match("(")) { // No expression after
-                  initialExpr = new Ast.Expr.Access(Optional.of(initialExpr), receiver);
-              } else {
-                  // Found '('
-                  List<Ast.Expr> args = new ArrayList<>();
-                  if(!match(")")) { // Found expression after
-                      args.add(parseExpression());
-                      while (match(",")) {
-                          args.add(parseExpression());
-                      }
-                      if(!match(")")) { // Check closing parentheses
-                          throw new ParseException("Invalid function closing parentheses not found", tokens.get(0).getIndex());
-                      }
-                  }
-                  initialExpr = new Ast.Expr.Function(Optional.of(initialExpr), receiver, args);
-              }
-          }
-          return initialExpr;
-
-        } catch (ParseException p) {
-            throw new ParseException(p.getMessage(), p.getIndex());
-        }
+        return parseBinaryExpression(SECONDARY);
     }
 
     /**
@@ -466,50 +937,29 @@ public final class Parser {
      * not strictly necessary.
      */
     public Ast.Expr parsePrimaryExpression() throws ParseException {
-        if (match("NIL")) {
+        if (match(SymbolTable.NIL)) {
             return new Ast.Expr.Literal(null);
         }
-        else if (match("TRUE")) {
+        else if (match(SymbolTable.TRUE)) {
             return new Ast.Expr.Literal(true);
         }
-        else if (match("FALSE")) {
+        else if (match(SymbolTable.FALSE)) {
             return new Ast.Expr.Literal(false);
         }
         else if (match(Token.Type.INTEGER)) { // INTEGER LITERAL FOUND
-            return new Ast.Expr.Literal(new BigInteger(tokens.get(-1).getLiteral()));
+            return new Ast.Expr.Literal(new BigInteger(tokens.getLiteral(-1)));
         }
         else if (match(Token.Type.DECIMAL)) { // DECIMAL LITERAL FOUND
-            return new Ast.Expr.Literal(new BigDecimal(tokens.get(-1).getLiteral()));
+            return new Ast.Expr.Literal(new BigDecimal(tokens.getLiteral(-1)));
         }
         else if (match(Token.Type.CHARACTER)) { // CHARACTER LITERAL FOUND
-            String str = tokens.get(-1).getLiteral();
-//            str = str.replace("\\n", "\n")
-//                    .replace("\\t", "\t")
-//                    .replace("\\b", "\b")
-//                    .replace("\\r", "\r")
-//                    .replace("\\'", "'")
-//                    .replace("\\\\", "\\")
-//                    .replace("\\\"", "\"");
-//            if(str.contains("\n") || str.contains("\t") || str.contains("\b") || str.contains("\r") || str.contains("\\") || str.contains("\"") || str.charAt(1) == '\'')
-//                return new Ast.Expr.Literal(str)
-            return new Ast.Expr.Literal(str.charAt(1));
+            return new Ast.Expr.Literal(tokens.getValue(-1).charAt(0));
         }
         else if (match(Token.Type.STRING)) { // STRING LITERAL FOUND
-            String str = tokens.get(-1).getLiteral();
-            str = str.substring(1, str.length() - 1);
-            if(str.contains("\\")) {
-                str = str.replace("\\n", "\n")
-                        .replace("\\t", "\t")
-                        .replace("\\b", "\b")
-                        .replace("\\r", "\r")
-                        .replace("\\'", "'")
-                        .replace("\\\\", "\\")
-                        .replace("\\\"", "\"");
-            }
-            return new Ast.Expr.Literal(str);
+            return new Ast.Expr.Literal(tokens.getValue(-1));
         }
         else if (match(Token.Type.IDENTIFIER)) { // IDENTIFIER FOUND
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             if (!match("(")) { // no expression after identifier
                 return new Ast.Expr.Access(Optional.empty(), name);
             }
@@ -526,11 +976,11 @@ public final class Parser {
                     if (match(")")) { // Check closing parentheses
                         return new Ast.Expr.Function(Optional.empty(), name, args);
                     } else {
-                        throw new ParseException("Closing parentheses expected", tokens.get(-1).getIndex());
+                        throw new ParseException("Closing parentheses expected", tokens.getIndex(-1));
                     }
                 } else {
-                    if (!tokens.get(-1).getLiteral().equals(")")) {
-                        throw new ParseException("Closing parentheses expected", tokens.get(-1).getIndex());
+                    if (!tokens.matches(-1, ")")) {
+                        throw new ParseException("Closing parentheses expected", tokens.getIndex(-1));
                     } else {
                         return new Ast.Expr.Function(Optional.empty(), name, Collections.emptyList());
                     }
@@ -542,11 +992,11 @@ public final class Parser {
         } else if (match("(")) {
             Ast.Expr expr = parseExpression();
             if (!match(")")) {
-                throw new ParseException("Expected closing parenthesis", tokens.get(-1).getIndex());
+                throw new ParseException("Expected closing parenthesis", tokens.getIndex(-1));
             }
             return new Ast.Stmt.Expr.Group(expr);
         } else {
-            throw new ParseException("Invalid Primary Expression", tokens.get(-1).getIndex());
+            throw new ParseException("Invalid Primary Expression", tokens.getIndex(-1));
             // TODO: handle storing the actual character index instead of I
         }
     }
@@ -560,17 +1010,24 @@ public final class Parser {
      *
      * In other words, {@code Token(IDENTIFIER, "literal")} is matched by both
      * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}.
+     *
+     * Keywords are matched by their {@link SymbolTable} id instead, given as an
+     * {@link Integer} such as {@code peek(SymbolTable.LET)}.
      */
     private boolean peek(Object... patterns) {
         for (int i = 0; i < patterns.length; i++) {
            if (!tokens.has(i)) {
                return false;
            } else if (patterns[i] instanceof Token.Type) {
-               if (patterns[i] != tokens.get(i).getType()) {
+               if (patterns[i] != tokens.getType(i)) {
+                   return false;
+               }
+           } else if (patterns[i] instanceof Integer) {
+               if ((Integer) patterns[i] != tokens.getSymbol(i)) {
                    return false;
                }
            } else if (patterns[i] instanceof String) {
-               if (!patterns[i].equals(tokens.get(i).getLiteral())) {
+               if (!tokens.matches(i, (String) patterns[i])) {
                    return false;
                }
            } else {
@@ -594,27 +1051,182 @@ public final class Parser {
         return peek;
     }
 
-    private static final class TokenStream {
+    /**
+     * Single pattern forms of {@link #peek(Object...)} and {@link
+     * #match(Object...)}, which are by far the most common and don't allocate
+     * an array of patterns on each call.
+     */
+    private boolean peek(Token.Type type) {
+        return tokens.has(0) && tokens.getType(0) == type;
+    }
+
+    private boolean peek(int symbol) {
+        return tokens.has(0) && tokens.getSymbol(0) == symbol;
+    }
+
+    private boolean peek(String literal) {
+        return tokens.has(0) && tokens.matches(0, literal);
+    }
 
-        private final List<Token> tokens;
-        private int index = 0;
+    private boolean match(Token.Type type) {
+        boolean peek = peek(type);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
+
+    private boolean match(int symbol) {
+        boolean peek = peek(symbol);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
+
+    private boolean match(String literal) {
+        boolean peek = peek(literal);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
+
+    private static final class BinaryOperator {
+
+        private final String literal;
+        private final int precedence;
+        private final boolean rightAssociative;
+
+        private BinaryOperator(String literal, int precedence, boolean rightAssociative) {
+            this.literal = literal;
+            this.precedence = precedence;
+            this.rightAssociative = rightAssociative;
+        }
 
-        private TokenStream(List<Token> tokens) {
+    }
+
+    /**
+     * A run of fields and methods parsed by {@link
+     * #parseSourceParallel(ForkJoinPool)}, each with its own parser over just
+     * its tokens. Any failure is only recorded, since the source is then parsed
+     * sequentially.
+     */
+    private static final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TokenStream tokens;
+        private final List<int[]> members;
+        private final boolean lazy;
+        private final List<Ast.Field> fields = new ArrayList<>();
+        private final List<Ast.Method> methods = new ArrayList<>();
+        private boolean failed = false;
+
+        private Chunk(TokenStream tokens, List<int[]> members, boolean lazy) {
             this.tokens = tokens;
+            this.members = members;
+            this.lazy = lazy;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                for (int[] member : members) {
+                    Parser parser = new Parser(tokens.slice(member[1], member[2]));
+                    parser.setLazy(lazy);
+                    if (member[0] == SymbolTable.LET) {
+                        fields.add(parser.parseField());
+                    } else {
+                        methods.add(parser.parseMethod());
+                    }
+                    if (parser.tokens.has(0)) { // the member ended before the skim expected
+                        failed = true;
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+        }
+
+    }
+
+    /**
+     * A group or function call whose contents are being parsed by {@link
+     * #parseBinaryExpression(int)}. Groups have no name, and only method calls
+     * have a receiver.
+     */
+    private static final class Frame {
+
+        private final Ast.Expr receiver;
+        private final String name;
+        private final int operators; // height of the operator stack below the frame
+        private final List<Ast.Expr> arguments = new ArrayList<>();
+
+        private Frame(Ast.Expr receiver, String name, int operators) {
+            this.receiver = receiver;
+            this.name = name;
+            this.operators = operators;
         }
 
+    }
+
+    /**
+     * Maintains the current position in a sequence of tokens, which is either a
+     * list of {@link Token}s or a {@link TokenBuffer}.
+     */
+    private static abstract class TokenStream {
+
+        protected int index = 0;
+
         /**
          * Returns true if there is a token at index + offset.
          */
-        public boolean has(int offset) {
-            return index + offset < tokens.size();
+        public abstract boolean has(int offset);
+
+        /**
+         * Gets the type of the token at index + offset.
+         */
+        public abstract Token.Type getType(int offset);
+
+        /**
+         * Gets the literal of the token at index + offset.
+         */
+        public abstract String getLiteral(int offset);
+
+        /**
+         * Gets the source index of the token at index + offset.
+         */
+        public abstract int getIndex(int offset);
+
+        /**
+         * Gets the symbol id of the token at index + offset.
+         */
+        public abstract int getSymbol(int offset);
+
+        /**
+         * Gets the value of the string or character literal at index + offset,
+         * as in {@link TokenBuffer#getValue(int)}.
+         */
+        public String getValue(int offset) {
+            String literal = getLiteral(offset);
+            return Lexer.decode(literal, 1, literal.length() - 1, literal.indexOf('\\'));
+        }
+
+        /**
+         * Gets the literal length of the token at index + offset.
+         */
+        public int getLength(int offset) {
+            return getLiteral(offset).length();
         }
 
         /**
-         * Gets the token at index + offset.
+         * Returns true if the literal of the token at index + offset is equal
+         * to the given literal.
          */
-        public Token get(int offset) {
-            return tokens.get(index + offset);
+        public boolean matches(int offset, String literal) {
+            return literal.equals(getLiteral(offset));
         }
 
         /**
@@ -624,6 +1236,189 @@ public final class Parser {
             index++;
         }
 
+        /**
+         * Returns a new stream over the tokens from index + start up to (but
+         * excluding) index + end, which must already be available.
+         */
+        public abstract TokenStream slice(int start, int end);
+
+    }
+
+    private static final class ListTokenStream extends TokenStream {
+
+        private final List<Token> tokens;
+
+        private ListTokenStream(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public TokenStream slice(int start, int end) {
+            return new ListTokenStream(tokens.subList(index + start, index + end));
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < tokens.size();
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return tokens.get(index + offset).getType();
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return tokens.get(index + offset).getLiteral();
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return tokens.get(index + offset).getIndex();
+        }
+
+        @Override
+        public int getSymbol(int offset) {
+            return tokens.get(index + offset).getSymbol();
+        }
+
+    }
+
+    private static final class BufferTokenStream extends TokenStream {
+
+        private final TokenBuffer tokens;
+        private final int end;
+
+        private BufferTokenStream(TokenBuffer tokens) {
+            this(tokens, 0, tokens.size());
+        }
+
+        private BufferTokenStream(TokenBuffer tokens, int start, int end) {
+            this.tokens = tokens;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < end;
+        }
+
+        @Override
+        public TokenStream slice(int start, int end) {
+            return new BufferTokenStream(tokens, index + start, index + end);
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return tokens.getType(index + offset);
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return tokens.getLiteral(index + offset);
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return tokens.getIndex(index + offset);
+        }
+
+        @Override
+        public int getSymbol(int offset) {
+            return tokens.getSymbol(index + offset);
+        }
+
+        @Override
+        public int getLength(int offset) {
+            return tokens.getLength(index + offset);
+        }
+
+        @Override
+        public boolean matches(int offset, String literal) {
+            return tokens.matches(index + offset, literal);
+        }
+
+        @Override
+        public String getValue(int offset) {
+            return tokens.getValue(index + offset);
+        }
+
+    }
+
+    /**
+     * Streams tokens from a lexer into a ring buffer, which holds the previous
+     * token (for {@code get(-1)}) and any tokens peeked ahead of the current
+     * one. The buffer only grows if the parser looks further ahead than its
+     * capacity, which is not the case for the grammar's lookahead.
+     */
+    private static final class LexerTokenStream extends TokenStream {
+
+        private final Lexer lexer;
+        private Token[] window = new Token[8];
+        private int count = 0; // number of tokens lexed so far
+
+        private LexerTokenStream(Lexer lexer) {
+            this.lexer = lexer;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            int position = index + offset;
+            while (position >= count) {
+                if (!lexer.hasToken()) {
+                    return false;
+                }
+                if (count - (index - 1) >= window.length) {
+                    grow();
+                }
+                window[count & (window.length - 1)] = lexer.lexToken();
+                count++;
+            }
+            return true;
+        }
+
+        @Override
+        public TokenStream slice(int start, int end) {
+            throw new IllegalStateException("Slicing requires a token list or buffer.");
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return get(offset).getType();
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return get(offset).getLiteral();
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return get(offset).getIndex();
+        }
+
+        @Override
+        public int getSymbol(int offset) {
+            return get(offset).getSymbol();
+        }
+
+        private Token get(int offset) {
+            int position = index + offset;
+            if (position < 0 || position < index - 1 || !has(offset)) {
+                throw new IndexOutOfBoundsException("Token " + position + " is outside of the stream window.");
+            }
+            return window[position & (window.length - 1)];
+        }
+
+        private void grow() {
+            Token[] grown = new Token[window.length * 2];
+            for (int position = Math.max(0, index - 1); position < count; position++) {
+                grown[position & (grown.length - 1)] = window[position & (window.length - 1)];
+            }
+            window = grown;
+        }
+
     }
 
 }
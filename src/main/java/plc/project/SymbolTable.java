@@ -0,0 +1,188 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns identifiers for a single compilation, assigning each distinct name a
+ * small integer id. Keywords are registered first with the fixed ids below, so
+ * the parser can match them by id instead of comparing literals.
+ *
+ * Interned names are shared {@link String} instances, so maps keyed by name
+ * (such as in {@link Scope}) hash each name once and compare by identity.
+ */
+public final class SymbolTable {
+
+    public static final int LET = 0;
+    public static final int DEF = 1;
+    public static final int DO = 2;
+    public static final int END = 3;
+    public static final int IF = 4;
+    public static final int ELSE = 5;
+    public static final int FOR = 6;
+    public static final int IN = 7;
+    public static final int WHILE = 8;
+    public static final int RETURN = 9;
+    public static final int NIL = 10;
+    public static final int TRUE = 11;
+    public static final int FALSE = 12;
+    public static final int AND = 13;
+    public static final int OR = 14;
+
+    private static final String[] KEYWORDS = {
+            "LET", "DEF", "DO", "END", "IF", "ELSE", "FOR", "IN", "WHILE",
+            "RETURN", "NIL", "TRUE", "FALSE", "AND", "OR"
+    };
+
+    private static final Map<String, Integer> KEYWORD_IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            KEYWORD_IDS.put(KEYWORDS[i], i);
+        }
+    }
+
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int[] slots = new int[128]; // symbol id + 1, or 0 if empty
+    private int size = 0;
+
+    public SymbolTable() {
+        for (String keyword : KEYWORDS) {
+            intern(keyword);
+        }
+    }
+
+    /**
+     * Returns the id of the keyword, or -1 if the name is not a keyword.
+     */
+    public static int keyword(String name) {
+        Integer id = KEYWORD_IDS.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns true if the id is one of the keyword ids, which are the same in
+     * every symbol table.
+     */
+    public static boolean isKeyword(int id) {
+        return id >= 0 && id < KEYWORDS.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Symbol " + id + " out of bounds for size " + size + ".");
+        }
+        return names[id];
+    }
+
+    /**
+     * Returns the id of the name, adding it to the table if necessary.
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(name, hash, slot);
+            } else if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the name made up of {@code length} characters starting
+     * at {@code start}, only creating a {@link String} if the name is new.
+     */
+    public int intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i]; // same as String#hashCode
+        }
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(new String(chars, start, length), hash, slot);
+            } else if (hashes[id] == hash && equals(names[id], chars, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the name made up of {@code length} characters of the
+     * source starting at {@code start}, in the same way as {@link
+     * #intern(char[], int, int)}.
+     */
+    public int intern(String source, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(source.substring(start, start + length), hash, slot);
+            } else if (hashes[id] == hash && names[id].length() == length
+                    && names[id].regionMatches(0, source, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Mixes the high bits of the hash into the low bits used for slots, as
+     * {@link java.util.HashMap} does.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String name, char[] chars, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        names[size] = name;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if (2 * size > slots.length) { // keep the load factor at most one half
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+}
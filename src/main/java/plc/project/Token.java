@@ -8,17 +8,28 @@ public final class Token {
         DECIMAL,
         CHARACTER,
         STRING,
-        OPERATOR
+        OPERATOR,
+        ERROR
     }
 
     private final Type type;
     private final String literal;
     private final int index;
+    private final int symbol;
 
     public Token(Type type, String literal, int index) {
+        this(type, literal, index, type == Type.IDENTIFIER ? SymbolTable.keyword(literal) : -1);
+    }
+
+    /**
+     * Creates a token with the id of its literal in a {@link SymbolTable},
+     * which is used for identifiers.
+     */
+    public Token(Type type, String literal, int index, int symbol) {
         this.type = type;
         this.literal = literal;
         this.index = index;
+        this.symbol = symbol;
     }
 
     public Type getType() {
@@ -33,6 +44,14 @@ public final class Token {
         return index;
     }
 
+    /**
+     * Returns the symbol id of an identifier, or -1 for other tokens. Tokens
+     * created without a symbol table only have the ids of keywords.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Token
@@ -0,0 +1,247 @@
+package plc.project;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A packed sequence of tokens over the original source, storing the type,
+ * start index, and length of each token in primitive arrays instead of one
+ * {@link Token} object (and literal substring) per token.
+ *
+ * Literals are only materialized when requested through {@link
+ * #getLiteral(int)} or {@link #get(int)}; {@link #matches(int, String)}
+ * compares against the source directly without copying. Identifiers also record their
+ * id in the {@link SymbolTable}, which provides their literal without copying.
+ *
+ * The arrays are a gap buffer so that {@link Lexer#relex} can replace the
+ * tokens of an edited region in place. Tokens are added at the gap, which is at
+ * the end unless the buffer has been edited, and tokens after the gap store
+ * their start relative to the end of the source, so they stay correct when the
+ * length of the source changes.
+ */
+public final class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+    private static final byte IDENTIFIER = (byte) Token.Type.IDENTIFIER.ordinal();
+
+    private String source;
+    private final SymbolTable symbols;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] ids;
+    private int size = 0;
+    private int gap = 0;  // index of the first slot in the gap
+    private int tail;     // index of the first slot after the gap
+
+    public TokenBuffer(String source, SymbolTable symbols) {
+        this.source = source;
+        this.symbols = symbols;
+        // tokens average several characters once whitespace is included
+        int capacity = Math.max(16, source.length() / 4);
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        ids = new int[capacity];
+        tail = capacity;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a token of the given type spanning {@code length} characters of the
+     * source starting at {@code start}. The symbol is the symbol id of an
+     * identifier, or for strings and characters the offset of the first escape
+     * from the start of the token (or -1 if there are none). Tokens are
+     * appended to the end of the buffer, or inserted at the edited region
+     * during {@link Lexer#relex}.
+     */
+    public void add(Token.Type type, int start, int length, int symbol) {
+        if (gap == tail) {
+            grow();
+        }
+        types[gap] = (byte) type.ordinal();
+        starts[gap] = start;
+        lengths[gap] = length;
+        ids[gap] = symbol;
+        gap++;
+        size++;
+    }
+
+    /**
+     * Returns the index of the first token ending at or after the position in
+     * the source, which is the token containing the position if there is one,
+     * or {@link #size()} if every token ends before it.
+     */
+    public int search(int position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getIndex(middle) + getLength(middle) < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Replaces the tokens from {@code from} (inclusive) to {@code to}
+     * (exclusive) with the tokens added afterwards, which must be from the
+     * updated source.
+     */
+    void replace(int from, int to, String source) {
+        move(from);
+        tail += to - from;
+        size -= to - from;
+        this.source = source;
+    }
+
+    public Token.Type getType(int index) {
+        return TYPES[types[slot(index)]];
+    }
+
+    /**
+     * Returns the index of the token in the source, as in {@link
+     * Token#getIndex()}.
+     */
+    public int getIndex(int index) {
+        int slot = slot(index);
+        return slot < gap ? starts[slot] : starts[slot] + source.length();
+    }
+
+    public int getLength(int index) {
+        return lengths[slot(index)];
+    }
+
+    /**
+     * Returns the symbol id of an identifier, or -1 for other tokens.
+     */
+    public int getSymbol(int index) {
+        int slot = slot(index);
+        return types[slot] == IDENTIFIER ? ids[slot] : -1;
+    }
+
+    /**
+     * Returns the value of a string or character literal, which is the literal
+     * without quotes and with any escapes decoded. Literals without escapes
+     * are copied directly from the source.
+     */
+    public String getValue(int index) {
+        int slot = slot(index);
+        int start = getIndex(index);
+        int escape = ids[slot] < 0 ? -1 : start + ids[slot];
+        return Lexer.decode(source, start + 1, start + lengths[slot] - 1, escape);
+    }
+
+    /**
+     * Returns the literal of the token, which is the interned name for
+     * identifiers and otherwise a new substring of the source on every call.
+     */
+    public String getLiteral(int index) {
+        int symbol = getSymbol(index);
+        if (symbol >= 0) {
+            return symbols.getName(symbol);
+        }
+        int start = getIndex(index);
+        return source.substring(start, start + getLength(index));
+    }
+
+    /**
+     * Returns true if the literal of the token is equal to the given literal,
+     * without materializing it.
+     */
+    public boolean matches(int index, String literal) {
+        int length = getLength(index);
+        return length == literal.length()
+                && source.regionMatches(getIndex(index), literal, 0, length);
+    }
+
+    public Token get(int index) {
+        return new Token(getType(index), getLiteral(index), getIndex(index), getSymbol(index));
+    }
+
+    /**
+     * Returns a view of the buffer as a list of tokens, which are created as
+     * they are accessed.
+     */
+    public List<Token> asList() {
+        return new AbstractList<Token>() {
+
+            @Override
+            public Token get(int index) {
+                return TokenBuffer.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+        };
+    }
+
+    /**
+     * Moves the gap to before the token at the given index, converting the
+     * starts of the tokens it passes over.
+     */
+    private void move(int index) {
+        int length = source.length();
+        while (gap > index) {
+            gap--;
+            tail--;
+            types[tail] = types[gap];
+            starts[tail] = starts[gap] - length;
+            lengths[tail] = lengths[gap];
+            ids[tail] = ids[gap];
+        }
+        while (gap < index) {
+            types[gap] = types[tail];
+            starts[gap] = starts[tail] + length;
+            lengths[gap] = lengths[tail];
+            ids[gap] = ids[tail];
+            gap++;
+            tail++;
+        }
+    }
+
+    private void grow() {
+        int capacity = types.length + (types.length >> 1) + 1;
+        int after = types.length - tail;
+        types = grow(types, new byte[capacity], capacity, after);
+        starts = grow(starts, new int[capacity], capacity, after);
+        lengths = grow(lengths, new int[capacity], capacity, after);
+        ids = grow(ids, new int[capacity], capacity, after);
+        tail = capacity - after;
+    }
+
+    /**
+     * Copies the tokens before the gap to the start of the new array and the
+     * tokens after the gap to its end.
+     */
+    private <T> T grow(T array, T copy, int capacity, int after) {
+        System.arraycopy(array, 0, copy, 0, gap);
+        System.arraycopy(array, tail, copy, capacity - after, after);
+        return copy;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index " + index + " out of bounds for size " + size + ".");
+        }
+        return index < gap ? index : index - gap + tail;
+    }
+
+}
@@ -0,0 +1,172 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+/**
+ * Runs {@link Bytecode}, with a frame of registers for each call. Methods of
+ * the program call each other directly, and through their functions in the
+ * scope otherwise, such as from builtins.
+ */
+public final class VirtualMachine {
+
+    private static final List<BinaryOperator<Environment.PlcObject>> OPERATORS = new ArrayList<>();
+
+    static {
+        for (String operator : new String[] {"+", "-", "*", "/", "AND", "OR", "==", "!=", "<", "<=", ">", ">="}) {
+            OPERATORS.add(Interpreter.operator(operator)); // in the order of the opcodes from ADD
+        }
+    }
+
+    private VirtualMachine() {}
+
+    /**
+     * Runs the first chunk of the program, which must have been compiled by
+     * the {@link BytecodeCompiler} whose scope it was defined in.
+     */
+    public static Environment.PlcObject run(Bytecode bytecode) {
+        Bytecode.Chunk chunk = bytecode.getChunks().get(0);
+        return execute(chunk, new Environment.PlcObject[chunk.registers]);
+    }
+
+    static Environment.PlcObject invoke(Bytecode.Chunk chunk, List<Environment.PlcObject> arguments) {
+        Environment.PlcObject[] registers = new Environment.PlcObject[chunk.registers];
+        for (int i = 0; i < arguments.size(); i++) {
+            registers[i] = arguments.get(i);
+        }
+        return execute(chunk, registers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Environment.PlcObject execute(Bytecode.Chunk chunk, Environment.PlcObject[] r) {
+        int[] code = chunk.code;
+        Object[] k = chunk.constants;
+        int pc = 0;
+        while (true) {
+            int opcode = code[pc];
+            switch (opcode) {
+                case Bytecode.CONST:
+                    r[code[pc + 1]] = (Environment.PlcObject) k[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.MOVE:
+                    r[code[pc + 1]] = r[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Bytecode.GET_GLOBAL:
+                    r[code[pc + 1]] = ((Environment.Variable) k[code[pc + 2]]).getValue();
+                    pc += 3;
+                    break;
+                case Bytecode.SET_GLOBAL:
+                    ((Environment.Variable) k[code[pc + 1]]).setValue(r[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case Bytecode.GET_NAME:
+                    r[code[pc + 1]] = chunk.scope.lookupVariable((String) k[code[pc + 2]]).getValue();
+                    pc += 3;
+                    break;
+                case Bytecode.SET_NAME:
+                    chunk.scope.lookupVariable((String) k[code[pc + 1]]).setValue(r[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case Bytecode.GET_FIELD:
+                    r[code[pc + 1]] = r[code[pc + 2]].getField((String) k[code[pc + 3]]).getValue();
+                    pc += 4;
+                    break;
+                case Bytecode.SET_FIELD:
+                    r[code[pc + 1]].setField((String) k[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Bytecode.ADD:
+                case Bytecode.SUB:
+                case Bytecode.MUL:
+                case Bytecode.DIV:
+                case Bytecode.AND:
+                case Bytecode.OR:
+                case Bytecode.EQ:
+                case Bytecode.NE:
+                case Bytecode.LT:
+                case Bytecode.LE:
+                case Bytecode.GT:
+                case Bytecode.GE:
+                    r[code[pc + 1]] = OPERATORS.get(opcode - Bytecode.ADD).apply(r[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Bytecode.SKIP_AND:
+                case Bytecode.SKIP_OR: {
+                    Environment.PlcObject left = r[code[pc + 2]];
+                    Boolean decisive = opcode == Bytecode.SKIP_OR;
+                    if (decisive.equals(left.getValue())) {
+                        r[code[pc + 1]] = OPERATORS.get(opcode - Bytecode.SKIP_AND + Bytecode.AND - Bytecode.ADD).apply(left, null);
+                        pc = code[pc + 3];
+                    } else {
+                        pc += 4;
+                    }
+                    break;
+                }
+                case Bytecode.JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case Bytecode.JUMP_FALSE:
+                    pc = Interpreter.requireType(Boolean.class, r[code[pc + 1]]) ? pc + 3 : code[pc + 2];
+                    break;
+                case Bytecode.ITERATE:
+                    r[code[pc + 1]] = Environment.create(Interpreter.requireType(Iterable.class, r[code[pc + 2]]).iterator());
+                    pc += 3;
+                    break;
+                case Bytecode.NEXT: {
+                    Iterator<Environment.PlcObject> iterator = (Iterator<Environment.PlcObject>) r[code[pc + 2]].getValue();
+                    if (iterator.hasNext()) {
+                        r[code[pc + 1]] = iterator.next();
+                        pc += 4;
+                    } else {
+                        pc = code[pc + 3];
+                    }
+                    break;
+                }
+                case Bytecode.CALL:
+                    r[code[pc + 1]] = ((Environment.Function) k[code[pc + 2]]).invoke(arguments(code, pc + 3, r));
+                    pc += 4 + code[pc + 3];
+                    break;
+                case Bytecode.CALL_NAME:
+                    r[code[pc + 1]] = chunk.scope.lookupFunction((String) k[code[pc + 2]], code[pc + 3]).invoke(arguments(code, pc + 3, r));
+                    pc += 4 + code[pc + 3];
+                    break;
+                case Bytecode.INVOKE: {
+                    Bytecode.Chunk callee = (Bytecode.Chunk) k[code[pc + 2]];
+                    Environment.PlcObject[] frame = new Environment.PlcObject[callee.registers];
+                    int count = code[pc + 3];
+                    for (int i = 0; i < count; i++) {
+                        frame[i] = r[code[pc + 4 + i]];
+                    }
+                    r[code[pc + 1]] = execute(callee, frame);
+                    pc += 4 + count;
+                    break;
+                }
+                case Bytecode.CALL_METHOD:
+                    r[code[pc + 1]] = r[code[pc + 3]].callMethod((String) k[code[pc + 2]], arguments(code, pc + 4, r));
+                    pc += 5 + code[pc + 4];
+                    break;
+                case Bytecode.RETURN:
+                    return r[code[pc + 1]];
+                default:
+                    throw new AssertionError("Unknown opcode " + opcode + " at " + pc + " in " + chunk.name + ".");
+            }
+        }
+    }
+
+    /**
+     * Returns the values of the registers listed at the index, after their
+     * count.
+     */
+    private static List<Environment.PlcObject> arguments(int[] code, int index, Environment.PlcObject[] r) {
+        List<Environment.PlcObject> arguments = new ArrayList<>(code[index]);
+        for (int i = 0; i < code[index]; i++) {
+            arguments.add(r[code[index + 1 + i]]);
+        }
+        return arguments;
+    }
+
+}
@@ -1,6 +1,7 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -39,6 +40,14 @@ public final class AnalyzerTests {
                             ast.setVariable(new Environment.Variable("name", "name", Environment.Type.INTEGER, Environment.NIL));
                         })
                 ),
+                Arguments.of("Integer Value",
+                        new Ast.Field("name", "Integer", Optional.of(new Ast.Expr.Literal(BigInteger.ONE))),
+                        init(new Ast.Field("name", "Integer", Optional.of(
+                                init(new Ast.Expr.Literal(BigInteger.ONE), ast -> ast.setType(Environment.Type.INTEGER))
+                        )), ast -> {
+                            ast.setVariable(new Environment.Variable("name", "name", Environment.Type.INTEGER, Environment.NIL));
+                        })
+                ),
                 Arguments.of("Invalid Field Declaration",
                         new Ast.Field("name", "Decimal", Optional.of(new Ast.Expr.Literal(1))),
                         null
@@ -382,6 +391,75 @@ public final class AnalyzerTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testSource(String test, String input, boolean success) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        if (success) {
+            new Analyzer(new Scope(null)).visit(ast);
+            Assertions.assertEquals(Environment.Type.INTEGER, ast.getMethods().get(0).getFunction().getReturnType());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(ast));
+        }
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main",
+                        "LET x: Integer = 1; DEF main(): Integer DO WHILE x < 10 DO x = x + 1; END RETURN x; END",
+                        true
+                ),
+                Arguments.of("Missing Main",
+                        "DEF other(): Integer DO RETURN 0; END",
+                        false
+                ),
+                Arguments.of("Main Return Type",
+                        "DEF main(): Integer DO RETURN \"zero\"; END",
+                        false
+                ),
+                Arguments.of("Main After Other Methods",
+                        "DEF one(): Integer DO RETURN 1; END DEF main(): Integer DO RETURN one(); END",
+                        true
+                ),
+                Arguments.of("Field Value",
+                        "LET x: Decimal = 1.0; DEF main(): Integer DO RETURN 0; END",
+                        true
+                ),
+                Arguments.of("Field Value Type",
+                        "LET x: Decimal = 1; DEF main(): Integer DO RETURN 0; END",
+                        false
+                ),
+                Arguments.of("Return In Each Method",
+                        "DEF main(): Integer DO RETURN 0; END DEF half(): Decimal DO RETURN 0.5; END",
+                        true
+                ),
+                Arguments.of("Return Type In Other Method",
+                        "DEF main(): Integer DO RETURN 0; END DEF half(): Decimal DO RETURN 1; END",
+                        false
+                ),
+                Arguments.of("While Condition",
+                        "DEF main(): Integer DO WHILE 1 DO END RETURN 0; END",
+                        false
+                ),
+                Arguments.of("If Scope",
+                        "DEF main(): Integer DO IF TRUE DO LET y = 1; print(y); ELSE LET z = 2; print(z); END RETURN 0; END",
+                        true
+                ),
+                Arguments.of("If Scope Exit",
+                        "DEF main(): Integer DO IF TRUE DO LET y = 1; END RETURN y; END",
+                        false
+                ),
+                Arguments.of("While Body",
+                        "DEF main(): Integer DO WHILE TRUE DO print(undefined); END RETURN 0; END",
+                        false
+                ),
+                Arguments.of("While Scope",
+                        "DEF main(): Integer DO WHILE TRUE DO LET y = 1; END RETURN y; END",
+                        false
+                )
+        );
+    }
+
     @ParameterizedTest(name = "{0}")
     @MethodSource
     public void testRequireAssignable(String test, Environment.Type target, Environment.Type type, boolean success) {
@@ -402,6 +480,17 @@ public final class AnalyzerTests {
         );
     }
 
+    @Test
+    public void testDeepExpression() {
+        // 1 + (1 + (... (1 + 1)))
+        Ast.Expr expr = new Ast.Expr.Literal(BigInteger.ONE);
+        for (int i = 0; i < 100_000; i++) {
+            expr = new Ast.Expr.Group(new Ast.Expr.Binary("+", new Ast.Expr.Literal(BigInteger.ONE), expr));
+        }
+        new Analyzer(new Scope(null)).visit(expr);
+        Assertions.assertEquals(Environment.Type.INTEGER, expr.getType());
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
@@ -0,0 +1,145 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests that {@link AstCodec} decodes exactly what it encoded, and that {@link
+ * ParseCache} reads sources back from its directory.
+ */
+final class AstCodecTests {
+
+    private static final String EXAMPLE = String.join("\n",
+            "LET first: Integer = 1;",
+            "LET big: Integer = 123456789012345678901234567890;",
+            "LET ratio: Decimal = -0.050;",
+            "LET text: String = \"h\u00e9llo\\n\u2603\";",
+            "LET none: Any;",
+            "DEF main(): Integer DO",
+            "    LET c = '\\t';",
+            "    LET flags: Boolean = TRUE AND (FALSE OR first != NIL);",
+            "    WHILE first < 10 DO",
+            "        print(\"first\", first);",
+            "        first = first + 1 * 2 / 3 - 4;",
+            "    END",
+            "    FOR item IN items DO",
+            "        object.field = object.method(item).other;",
+            "    END",
+            "    IF first >= -20 DO",
+            "        RETURN first;",
+            "    ELSE",
+            "        log();",
+            "    END",
+            "    RETURN 0;",
+            "END",
+            "DEF empty(a: Integer, b: String) DO",
+            "END"
+    );
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRoundTrip(String test, String input) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        byte[] encoded = AstCodec.encode(source);
+        Assertions.assertEquals(source, AstCodec.decode(encoded));
+    }
+
+    private static Stream<Arguments> testRoundTrip() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Example", EXAMPLE),
+                Arguments.of("Generated", new ProgramGenerator(19).methods(50).generate())
+        );
+    }
+
+    @Test
+    void testSharedStrings() {
+        Ast.Source source = AstCodec.decode(AstCodec.encode(new Parser(new Lexer(EXAMPLE).lex()).parseSource()));
+        Ast.Stmt.Expression print = (Ast.Stmt.Expression) ((Ast.Stmt.While) source.getMethods().get(0).getStatements().get(2)).getStatements().get(0);
+        Ast.Expr.Access access = (Ast.Expr.Access) ((Ast.Expr.Function) print.getExpression()).getArguments().get(1);
+        Assertions.assertSame(source.getFields().get(0).getName(), access.getName());
+    }
+
+    @Test
+    void testDeepExpression() {
+        int depth = 100_000;
+        StringBuilder input = new StringBuilder("LET x: Integer = ");
+        for (int i = 0; i < depth; i++) {
+            input.append("(f(1, ");
+        }
+        input.append("x");
+        for (int i = 0; i < depth; i++) {
+            input.append(").y + 1)");
+        }
+        input.append(";");
+        byte[] encoded = AstCodec.encode(new Parser(new Lexer(input.toString()).lexBuffer()).parseSource());
+        // compared by encoding again, since equals recurses through the expression
+        Assertions.assertArrayEquals(encoded, AstCodec.encode(AstCodec.decode(encoded)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testMalformed(String test, byte[] encoded) {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AstCodec.decode(encoded));
+    }
+
+    private static Stream<Arguments> testMalformed() {
+        byte[] encoded = AstCodec.encode(new Parser(new Lexer(EXAMPLE).lex()).parseSource());
+        byte[] version = encoded.clone();
+        version[4]++;
+        return Stream.of(
+                Arguments.of("Empty", new byte[0]),
+                Arguments.of("Magic", "PLC".getBytes()),
+                Arguments.of("Version", version),
+                Arguments.of("Truncated", Arrays.copyOf(encoded, encoded.length - 1)),
+                Arguments.of("Trailing", Arrays.copyOf(encoded, encoded.length + 1))
+        );
+    }
+
+    @Test
+    void testCache(@TempDir Path directory) throws IOException {
+        ParseCache cache = new ParseCache(directory.resolve("cache"));
+        Ast.Source expected = new Parser(new Lexer(EXAMPLE).lex()).parseSource();
+        Assertions.assertEquals(expected, cache.parse(EXAMPLE));
+        List<Path> entries = entries(cache);
+        Assertions.assertEquals(1, entries.size());
+        // replace the entry, which is then returned without parsing the source
+        Ast.Source other = new Parser(new Lexer("LET x: Integer = 1;").lex()).parseSource();
+        Files.write(entries.get(0), AstCodec.encode(other));
+        Assertions.assertEquals(other, cache.parse(EXAMPLE));
+        // a corrupted entry is parsed and written again
+        Files.write(entries.get(0), new byte[] {1, 2, 3});
+        Assertions.assertEquals(expected, cache.parse(EXAMPLE));
+        Assertions.assertEquals(expected, AstCodec.decode(Files.readAllBytes(entries.get(0))));
+        Path file = directory.resolve("source.plc");
+        Files.write(file, EXAMPLE.getBytes("UTF-8"));
+        Assertions.assertEquals(expected, cache.parse(file));
+        Assertions.assertEquals(entries, entries(cache));
+    }
+
+    @Test
+    void testCacheSyntaxError(@TempDir Path directory) throws IOException {
+        ParseCache cache = new ParseCache(directory);
+        Assertions.assertThrows(ParseException.class, () -> cache.parse("LET x = ;"));
+        Assertions.assertTrue(entries(cache).isEmpty());
+    }
+
+    private static List<Path> entries(ParseCache cache) throws IOException {
+        try (Stream<Path> entries = Files.list(cache.getDirectory())) {
+            return entries.sorted().collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the {@link InterpreterTests} with the {@link BytecodeCompiler} and
+ * {@link VirtualMachine}, checks them against the interpreter on whole
+ * programs, and checks the disassembly.
+ */
+final class BytecodeTests extends InterpreterTests {
+
+    @Override
+    Scope test(Ast ast, Object expected, Scope scope) {
+        BytecodeCompiler compiler = new BytecodeCompiler(scope);
+        if (expected != null) {
+            Assertions.assertEquals(expected, VirtualMachine.run(compiler.compile(ast)).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> VirtualMachine.run(compiler.compile(ast)));
+        }
+        return compiler.getScope();
+    }
+
+    @Override
+    Object run(Ast.Source ast) {
+        Bytecode bytecode = new BytecodeCompiler(new Scope(null)).compile(ast);
+        Object result = VirtualMachine.run(bytecode).getValue();
+        Assertions.assertEquals(result, VirtualMachine.run(bytecode).getValue()); // fields are reset
+        return result;
+    }
+
+    @Test
+    void testDisassemble() {
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "LET limit: Integer = 3;",
+                "DEF main(): Integer DO",
+                "    LET i = 0;",
+                "    WHILE i < limit AND TRUE DO",
+                "        print(\"i\");",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN i;",
+                "END"
+        )).lex()).parseSource();
+        Bytecode bytecode = new BytecodeCompiler(new Scope(null)).compile(ast);
+        Assertions.assertEquals(String.join("\n",
+                "<program>/0 registers=1",
+                "     0  CONST       r0, k0  ; 3",
+                "     3  SET_GLOBAL  k1, r0  ; limit",
+                "     6  INVOKE      r0, k2, ()  ; main/0",
+                "    10  RETURN      r0",
+                "main/0 registers=3",
+                "     0  CONST       r0, k0  ; 0",
+                "     3  GET_GLOBAL  r1, k1  ; limit",
+                "     6  LT          r1, r0, r1",
+                "    10  SKIP_AND    r1, r1, @21",
+                "    14  CONST       r2, k2  ; true",
+                "    17  AND         r1, r1, r2",
+                "    21  JUMP_FALSE  r1, @44",
+                "    24  CONST       r1, k3  ; \"i\"",
+                "    27  CALL        r1, k4, (r1)  ; print/1",
+                "    32  CONST       r1, k5  ; 1",
+                "    35  ADD         r1, r0, r1",
+                "    39  MOVE        r0, r1",
+                "    42  JUMP        @3",
+                "    44  RETURN      r0",
+                "    46  CONST       r1, k6  ; nil",
+                "    49  RETURN      r1",
+                ""
+        ), bytecode.disassemble());
+    }
+
+}
@@ -0,0 +1,30 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+
+/**
+ * Runs the {@link InterpreterTests} with the {@link ClosureCompiler}, and
+ * checks it against the interpreter on whole programs.
+ */
+final class ClosureCompilerTests extends InterpreterTests {
+
+    @Override
+    Scope test(Ast ast, Object expected, Scope scope) {
+        ClosureCompiler compiler = new ClosureCompiler(scope);
+        if (expected != null) {
+            Assertions.assertEquals(expected, compiler.compile(ast).run().getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> compiler.compile(ast).run());
+        }
+        return compiler.getScope();
+    }
+
+    @Override
+    Object run(Ast.Source ast) {
+        ClosureCompiler.Program program = new ClosureCompiler(new Scope(null)).compile(ast);
+        Object result = program.run().getValue();
+        Assertions.assertEquals(result, program.run().getValue()); // fields are reset
+        return result;
+    }
+
+}
@@ -1,6 +1,7 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -349,6 +350,14 @@ public class GeneratorTests {
                                 init(new Ast.Expr.Literal(BigInteger.TEN), ast -> ast.setType(Environment.Type.INTEGER))
                         ), ast -> ast.setType(Environment.Type.STRING)),
                         "\"Ben\" + 10"
+                ),
+                Arguments.of("Escapes",
+                        // "a\"b\n" + '\''
+                        init(new Ast.Expr.Binary("+",
+                                init(new Ast.Expr.Literal("a\"b\n"), ast -> ast.setType(Environment.Type.STRING)),
+                                init(new Ast.Expr.Literal('\''), ast -> ast.setType(Environment.Type.CHARACTER))
+                        ), ast -> ast.setType(Environment.Type.STRING)),
+                        "\"a\\\"b\\n\" + '\\''"
                 )
         );
     }
@@ -381,6 +390,21 @@ public class GeneratorTests {
         );
     }
 
+    @Test
+    void testDeepExpression() {
+        // 1 + (1 + (... (1 + 1)))
+        int depth = 100_000;
+        Ast.Expr expr = init(new Ast.Expr.Literal(BigInteger.ONE), ast -> ast.setType(Environment.Type.INTEGER));
+        for (int i = 0; i < depth; i++) {
+            expr = new Ast.Expr.Group(new Ast.Expr.Binary("+",
+                    init(new Ast.Expr.Literal(BigInteger.ONE), ast -> ast.setType(Environment.Type.INTEGER)),
+                    expr
+            ));
+        }
+        String expected = String.join("", Collections.nCopies(depth, "(1 + ")) + "1" + String.join("", Collections.nCopies(depth, ")"));
+        test(expr, expected);
+    }
+
     /**
      * Helper function for tests, using a StringWriter as the output stream.
      */
@@ -17,7 +17,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-final class InterpreterTests {
+class InterpreterTests {
 
     @ParameterizedTest
     @MethodSource
@@ -396,7 +396,138 @@ final class InterpreterTests {
         );
     }
 
-    private static Scope test(Ast ast, Object expected, Scope scope) {
+    @Test
+    void testDeepExpression() {
+        // 1 + (1 + (... (1 + 1)))
+        int depth = 100_000;
+        Ast.Expr expr = new Ast.Expr.Literal(BigInteger.ONE);
+        for (int i = 0; i < depth; i++) {
+            expr = new Ast.Expr.Group(new Ast.Expr.Binary("+", new Ast.Expr.Literal(BigInteger.ONE), expr));
+        }
+        test(expr, BigInteger.valueOf(depth + 1), new Scope(null));
+    }
+
+    @Test
+    void testShortCircuit() {
+        // FALSE AND print("skipped")
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            test(new Ast.Expr.Binary("AND",
+                    new Ast.Expr.Literal(false),
+                    new Ast.Expr.Function(Optional.empty(), "print", Arrays.asList(new Ast.Expr.Literal("skipped")))
+            ), false, new Scope(null));
+        } finally {
+            System.setOut(sysout);
+        }
+        Assertions.assertEquals("", out.toString());
+    }
+
+    /**
+     * Sums the squares below 100 into a field, which is 328350.
+     */
+    static final String LOOP = String.join("\n",
+            "LET total: Integer = 0;",
+            "DEF main(): Integer DO",
+            "    LET i = 0;",
+            "    WHILE i < 100 DO",
+            "        LET square = i * i;",
+            "        total = total + square;",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN total;",
+            "END"
+    );
+
+    /**
+     * Computes fib(15) recursively, which is 610.
+     */
+    static final String RECURSION = String.join("\n",
+            "DEF fib(n: Integer): Integer DO",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "DEF main(): Integer DO",
+            "    RETURN fib(15);",
+            "END"
+    );
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testProgram(String test, String input, Object expected) {
+        Ast.Source ast = parse(input);
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(ast).getValue());
+        Assertions.assertEquals(expected, run(ast));
+    }
+
+    private static Stream<Arguments> testProgram() {
+        return Stream.concat(programs(), Stream.of(
+                Arguments.of("Short Circuit", String.join("\n",
+                        "DEF main(): Boolean DO",
+                        "    LET i = 0;",
+                        "    LET result = FALSE;",
+                        "    WHILE i < 4 DO",
+                        "        result = result OR i == 2 AND (TRUE OR undefined);",
+                        "        i = i + 1;",
+                        "    END",
+                        "    RETURN result AND (i > 3 OR undefined);",
+                        "END"
+                ), true)
+        ));
+    }
+
+    /**
+     * Whole programs returning an Integer from main, which also pass the
+     * {@link Analyzer} so they are shared with the tests of the compilers to
+     * JVM classes.
+     */
+    static Stream<Arguments> programs() {
+        return Stream.of(
+                Arguments.of("Loop", LOOP, BigInteger.valueOf(328350)),
+                Arguments.of("Recursion", RECURSION, BigInteger.valueOf(610)),
+                Arguments.of("Field Shadowing", String.join("\n",
+                        "LET x: Integer = 1;",
+                        "DEF main(): Integer DO",
+                        "    LET y = x;",
+                        "    IF TRUE DO",
+                        "        LET x = 10;",
+                        "        y = y + x;",
+                        "    END",
+                        "    IF TRUE DO",
+                        "        LET z = 100;",
+                        "        y = y + z;",
+                        "    END",
+                        "    RETURN y + x;",
+                        "END"
+                ), BigInteger.valueOf(112))
+        );
+    }
+
+    static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+    static Ast.Source analyze(String input) {
+        Ast.Source ast = parse(input);
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    /**
+     * Runs the whole program, returning the value of main.
+     */
+    Object run(Ast.Source ast) {
+        return new Interpreter(new Scope(null)).visit(ast).getValue();
+    }
+
+    /**
+     * Evaluates the AST and checks its result, or that it throws if expected
+     * is null, returning the scope it was evaluated in.
+     */
+    Scope test(Ast ast, Object expected, Scope scope) {
         Interpreter interpreter = new Interpreter(scope);
         if (expected != null) {
             Assertions.assertEquals(expected, interpreter.visit(ast).getValue());
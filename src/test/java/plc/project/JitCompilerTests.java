@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+
+/**
+ * Tests that the {@link JitCompiler} runs the shared programs of {@link
+ * InterpreterTests} with the same results as the {@link Interpreter}, and
+ * caches the classes it compiles.
+ */
+final class JitCompilerTests {
+
+    private static JitCompiler jit;
+
+    @BeforeAll
+    static void setup() {
+        jit = new JitCompiler();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("plc.project.InterpreterTests#programs")
+    void testProgram(String test, String input, BigInteger expected) {
+        Assertions.assertEquals(expected.intValue(), jit.run(InterpreterTests.analyze(input)));
+    }
+
+    @Test
+    void testCache() {
+        String input = String.join("\n",
+                "DEF main(): Integer DO",
+                "    RETURN 1 + 2;",
+                "END"
+        );
+        Class<?> main = jit.compile(InterpreterTests.analyze(input));
+        Assertions.assertSame(main, jit.compile(InterpreterTests.analyze(input)));
+        Assertions.assertNotSame(main, jit.compile(InterpreterTests.analyze(input.replace("2", "3"))));
+        Assertions.assertEquals(3, jit.run(main));
+        Assertions.assertNull(main.getClassLoader().getParent());
+    }
+
+    @Test
+    void testCompileError() {
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> jit.compile("public class Main { int main() {} }"));
+        Assertions.assertTrue(exception.getMessage().startsWith("The generated source does not compile:"), exception.getMessage());
+    }
+
+    @Test
+    void testRuntimeError() {
+        Ast.Source ast = InterpreterTests.analyze(String.join("\n",
+                "DEF main(): Integer DO",
+                "    RETURN 1 / 0;",
+                "END"
+        ));
+        Assertions.assertThrows(ArithmeticException.class, () -> jit.run(ast));
+    }
+
+}
@@ -0,0 +1,184 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+/**
+ * Tests that classes from the {@link JvmCompiler} verify and run analyzed
+ * sources with the same results as the {@link JitCompiler}.
+ */
+final class JvmCompilerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("plc.project.InterpreterTests#programs")
+    void testProgram(String test, String input, BigInteger expected) {
+        Assertions.assertEquals(expected.intValue(), new JvmCompiler().run(InterpreterTests.analyze(input)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRun(String test, String input, int expected) {
+        Assertions.assertEquals(expected, new JvmCompiler().run(InterpreterTests.analyze(input)));
+    }
+
+    private static Stream<Arguments> testRun() {
+        return Stream.of(
+                Arguments.of("Decimal", String.join("\n",
+                        "LET x: Decimal = 1.5;",
+                        "DEF main(): Integer DO",
+                        "    LET y = x * 2.0 - 0.5 / 2.0;",
+                        "    IF y > 2.5 AND y <= 2.75 DO",
+                        "        RETURN 1;",
+                        "    END",
+                        "    RETURN 0;",
+                        "END"
+                ), 1),
+                Arguments.of("Concatenation", String.join("\n",
+                        "DEF main(): Integer DO",
+                        "    LET s = \"abc\" + 1 + 'd' + 2.5 + TRUE;",
+                        "    IF s == \"abc1d2.5true\" DO",
+                        "        RETURN s.length;",
+                        "    END",
+                        "    RETURN 0;",
+                        "END"
+                ), 12),
+                Arguments.of("Receiver Methods", String.join("\n",
+                        "DEF main(): Integer DO",
+                        "    LET n = 3;",
+                        "    IF \"hello\".slice(1, 3) != \"el\" DO",
+                        "        RETURN 0;",
+                        "    END",
+                        "    RETURN n.compare(5);",
+                        "END"
+                ), -1),
+                Arguments.of("Comparable", String.join("\n",
+                        "LET c: Comparable = \"b\";",
+                        "LET d: Character = 'b';",
+                        "DEF main(): Integer DO",
+                        "    IF c > \"a\" AND d >= 'b' AND d != 'c' DO",
+                        "        RETURN 1;",
+                        "    END",
+                        "    RETURN 0;",
+                        "END"
+                ), 1),
+                Arguments.of("Shadowing", String.join("\n",
+                        "DEF main(): Integer DO",
+                        "    LET x = 1;",
+                        "    IF TRUE DO",
+                        "        LET x = 2.0;",
+                        "    ELSE",
+                        "        LET y: Integer;",
+                        "        x = y;",
+                        "    END",
+                        "    RETURN x;",
+                        "END"
+                ), 1),
+                Arguments.of("Short Circuit", String.join("\n",
+                        "LET count: Integer = 0;",
+                        "DEF f(): Boolean DO",
+                        "    count = count + 1;",
+                        "    RETURN TRUE;",
+                        "END",
+                        "DEF main(): Integer DO",
+                        "    LET a = FALSE AND f();",
+                        "    LET b = TRUE OR f();",
+                        "    LET c = TRUE AND f() OR f();",
+                        "    RETURN count;",
+                        "END"
+                ), 1),
+                Arguments.of("Missing Return", String.join("\n",
+                        "DEF none(): Integer DO",
+                        "END",
+                        "DEF main(): Integer DO",
+                        "    RETURN none() + 1;",
+                        "END"
+                ), 1)
+        );
+    }
+
+    @Test
+    void testPrint() {
+        String input = String.join("\n",
+                "LET any: Any = NIL;",
+                "DEF log(value: Any) DO",
+                "    print(value);",
+                "    RETURN NIL;",
+                "END",
+                "DEF main(): Integer DO",
+                "    print(1);",
+                "    print(2.5);",
+                "    print(\"text\");",
+                "    print('c');",
+                "    print(FALSE);",
+                "    log(any);",
+                "    RETURN 0;",
+                "END"
+        );
+        Ast.Source ast = InterpreterTests.analyze(input);
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(bytes, true));
+            new JvmCompiler().run(ast);
+        } finally {
+            System.setOut(out);
+        }
+        String separator = System.lineSeparator();
+        Assertions.assertEquals(String.join(separator, "1", "2.5", "text", "c", "false", "null") + separator, bytes.toString());
+    }
+
+    @Test
+    void testGenerated() {
+        JitCompiler jit = new JitCompiler();
+        for (long seed = 0; seed < 10; seed++) {
+            Ast.Source ast = InterpreterTests.analyze(new ProgramGenerator(seed).methods(20).generate());
+            Assertions.assertEquals(jit.run(ast), new JvmCompiler().run(ast), "seed " + seed);
+        }
+    }
+
+    @Test
+    void testVerify() {
+        Class<?> main = new JvmCompiler().load(InterpreterTests.analyze(String.join("\n",
+                "LET total: Integer = 0;",
+                "DEF main(): Integer DO",
+                "    RETURN total;",
+                "END"
+        )));
+        Assertions.assertEquals("Main", main.getName());
+        Assertions.assertNull(main.getClassLoader().getParent());
+    }
+
+    @Test
+    void testUndefinedFunction() {
+        Scope scope = new Scope(null);
+        scope.defineFunction("external", "external", Collections.emptyList(), Environment.Type.INTEGER, args -> Environment.NIL);
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "DEF main(): Integer DO",
+                "    RETURN external();",
+                "END"
+        )).lex()).parseSource();
+        new Analyzer(scope).visit(ast);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new JvmCompiler().compile(ast));
+        Assertions.assertEquals("The function external/0 is not defined in the source.", exception.getMessage());
+    }
+
+    @Test
+    void testRuntimeError() {
+        Ast.Source ast = InterpreterTests.analyze(String.join("\n",
+                "DEF main(): Integer DO",
+                "    RETURN 1 / 0;",
+                "END"
+        ));
+        Assertions.assertThrows(ArithmeticException.class, () -> new JvmCompiler().run(ast));
+    }
+
+}
@@ -2,10 +2,17 @@ package plc.project;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
@@ -132,6 +139,177 @@ public class LexerTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("testExamples")
+    void testBuffer(String test, String input, List<Token> expected) {
+        Assertions.assertEquals(expected, new Lexer(input).lexBuffer().asList());
+    }
+
+    @Test
+    void testReader() {
+        // large enough to refill the reader window several times
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.append("LET name").append(i).append(" = \"value\\n\" + ").append(i).append(".5;\n");
+        }
+        String input = builder.toString();
+        Lexer lexer = new Lexer(new StringReader(input));
+        List<Token> tokens = new ArrayList<>();
+        while (lexer.hasToken()) {
+            tokens.add(lexer.lexToken());
+        }
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+    }
+
+    @Test
+    void testMappedFile(@TempDir Path directory) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.append("print(\"caf\u00e9 \uD83D\uDE00\", ").append(i).append(");\n");
+        }
+        String input = builder.toString();
+        Path path = directory.resolve("source.plc");
+        Files.write(path, input.getBytes(StandardCharsets.UTF_8));
+        Lexer lexer = new Lexer(path);
+        List<Token> tokens = new ArrayList<>();
+        while (lexer.hasToken()) {
+            tokens.add(lexer.lexToken());
+        }
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+    }
+
+    @Test
+    void testParallel() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append("LET name").append(i).append(" = 'c' <= -").append(i).append(".5;\n");
+        }
+        String input = builder.toString();
+        Lexer lexer = new Lexer(input);
+        List<Token> tokens = lexer.lexParallel();
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+        for (Token token : tokens) {
+            if (token.getType() == Token.Type.IDENTIFIER) {
+                Assertions.assertSame(lexer.getSymbols().getName(token.getSymbol()), token.getLiteral());
+            }
+        }
+    }
+
+    @Test
+    void testParallelException() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append(i == 15000 ? "\"unterminated\n" : "print(\"Hello, World!\");\n");
+        }
+        String input = builder.toString();
+        ParseException expected = Assertions.assertThrows(ParseException.class, () -> new Lexer(input).lex());
+        ParseException exception = Assertions.assertThrows(ParseException.class, () -> new Lexer(input).lexParallel());
+        Assertions.assertEquals(expected.getIndex(), exception.getIndex());
+    }
+
+    @Test
+    void testStatistics() {
+        LexerStatistics statistics = new LexerStatistics();
+        Lexer lexer = new Lexer("print(\"Hello, World!\", 'c', x <= -1.5);");
+        lexer.setTrace(statistics);
+        lexer.lex();
+        Assertions.assertEquals(11, statistics.getCount());
+        Assertions.assertEquals(1, statistics.getCount(Token.Type.STRING));
+        Assertions.assertEquals(15, statistics.getLength(Token.Type.STRING));
+        Assertions.assertEquals(6, statistics.getCount(Token.Type.OPERATOR));
+        Assertions.assertEquals("printx".length(), statistics.getLength(Token.Type.IDENTIFIER));
+    }
+
+    @Test
+    void testStatisticsEntryPoints() {
+        LexerStatistics statistics = new LexerStatistics();
+        Lexer lexer = new Lexer("name 1.5'c'\"s\"+");
+        lexer.setTrace(statistics);
+        lexer.lexIdentifier();
+        lexer.hasToken();
+        lexer.lexNumber();
+        lexer.lexCharacter();
+        lexer.lexString();
+        lexer.lexOperator();
+        Assertions.assertEquals(5, statistics.getCount());
+        Assertions.assertEquals(1, statistics.getCount(Token.Type.DECIMAL));
+        Assertions.assertEquals(3, statistics.getLength(Token.Type.STRING));
+    }
+
+    @Test
+    void testSymbols() {
+        List<Token> tokens = new Lexer("LET name = name + other; END").lex();
+        Assertions.assertEquals(SymbolTable.LET, tokens.get(0).getSymbol());
+        Assertions.assertEquals(SymbolTable.END, tokens.get(7).getSymbol());
+        Assertions.assertEquals(tokens.get(1).getSymbol(), tokens.get(3).getSymbol());
+        Assertions.assertSame(tokens.get(1).getLiteral(), tokens.get(3).getLiteral());
+        Assertions.assertNotEquals(tokens.get(1).getSymbol(), tokens.get(5).getSymbol());
+        Assertions.assertEquals(-1, tokens.get(2).getSymbol());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testRelex(String test, int offset, int removed, String inserted) {
+        String input = "LET name = 1;\nprint(\"Hello\", name);\nDEF f() DO x <= -2.5; END\n";
+        String edited = input.substring(0, offset) + inserted + input.substring(offset + removed);
+        TokenBuffer tokens = new Lexer(input).lexBuffer();
+        Lexer.relex(tokens, offset, removed, inserted);
+        Assertions.assertEquals(edited, tokens.getSource());
+        Assertions.assertEquals(new Lexer(edited).lex(), tokens.asList());
+        // undo the edit, which moves the gap back over the edited region
+        Lexer.relex(tokens, offset, inserted.length(), input.substring(offset, offset + removed));
+        Assertions.assertEquals(new Lexer(input).lex(), tokens.asList());
+    }
+
+    private static Stream<Arguments> testRelex() {
+        return Stream.of(
+                Arguments.of("Extend Identifier", 8, 0, "s"),
+                Arguments.of("Split Identifier", 6, 0, " "),
+                Arguments.of("Join Tokens", 8, 3, ""),
+                Arguments.of("Delete Lines", 4, 25, ""),
+                Arguments.of("Insert Lines", 14, 0, "LET a = 'c';\nLET b = \"\\n\";\n"),
+                Arguments.of("Negate Integer", 11, 0, "-"),
+                Arguments.of("Start", 0, 0, "x "),
+                Arguments.of("End", 62, 0, "y"),
+                Arguments.of("Replace All", 0, 62, "z")
+        );
+    }
+
+    @Test
+    void testRelexException() {
+        String input = "print(\"Hello\");\nprint(1);\n";
+        ParseException expected = Assertions.assertThrows(ParseException.class,
+                () -> new Lexer("print(\"\"Hello\");\nprint(1);\n").lex());
+        TokenBuffer tokens = new Lexer(input).lexBuffer();
+        ParseException exception = Assertions.assertThrows(ParseException.class,
+                () -> Lexer.relex(tokens, 6, 0, "\""));
+        Assertions.assertEquals(expected.getIndex(), exception.getIndex());
+        Assertions.assertEquals(new Lexer(input).lex(), tokens.asList());
+    }
+
+    @Test
+    void testRecovery() {
+        String input = "LET x = \"unterminated;\nLET y = 1.;\nprint('ab');\nLET z = '\\q';\nLET w = 5;";
+        List<ParseException> errors = new ArrayList<>();
+        List<Token> tokens = new Lexer(input).lex(errors);
+        Assertions.assertEquals(4, errors.size());
+        for (ParseException error : errors) {
+            int start = input.lastIndexOf('\n', error.getIndex() - 1) + 1;
+            ParseException expected = Assertions.assertThrows(ParseException.class,
+                    () -> new Lexer(input.substring(start)).lex());
+            Assertions.assertEquals(start + expected.getIndex(), error.getIndex());
+        }
+        Assertions.assertEquals(new Token(Token.Type.ERROR, "\"unterminated;", 8), tokens.get(3));
+        Assertions.assertEquals(new Token(Token.Type.ERROR, "1.;", 31), tokens.get(7));
+        Assertions.assertEquals(Arrays.asList(
+                new Token(Token.Type.IDENTIFIER, "LET", 62),
+                new Token(Token.Type.IDENTIFIER, "w", 66),
+                new Token(Token.Type.OPERATOR, "=", 68),
+                new Token(Token.Type.INTEGER, "5", 70),
+                new Token(Token.Type.OPERATOR, ";", 71)
+        ), tokens.subList(tokens.size() - 5, tokens.size()));
+    }
+
     @Test
     void testException() {
         ParseException exception = Assertions.assertThrows(ParseException.class,
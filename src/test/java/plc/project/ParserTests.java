@@ -6,12 +6,18 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -317,6 +323,14 @@ final class ParserTests {
                 Arguments.of("Escape Character",
                         Arrays.asList(new Token(Token.Type.STRING, "\"Hello,\\nWorld!\"", 0)),
                         new Ast.Expr.Literal("Hello,\nWorld!")
+                ),
+                Arguments.of("Escaped Backslash",
+                        Arrays.asList(new Token(Token.Type.STRING, "\"C:\\\\new\\t\"", 0)),
+                        new Ast.Expr.Literal("C:\\new\t")
+                ),
+                Arguments.of("Character Escape",
+                        Arrays.asList(new Token(Token.Type.CHARACTER, "'\\n'", 0)),
+                        new Ast.Expr.Literal('\n')
                 )
         );
     }
@@ -410,6 +424,50 @@ final class ParserTests {
                                 new Ast.Expr.Access(Optional.empty(), "expr1"),
                                 new Ast.Expr.Access(Optional.empty(), "expr2")
                         )
+                ),
+                Arguments.of("Binary Precedence",
+                        Arrays.asList(
+                                //a - b * c - d
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "-", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "*", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 8),
+                                new Token(Token.Type.OPERATOR, "-", 10),
+                                new Token(Token.Type.IDENTIFIER, "d", 12)
+                        ),
+                        new Ast.Expr.Binary("-",
+                                new Ast.Expr.Binary("-",
+                                        new Ast.Expr.Access(Optional.empty(), "a"),
+                                        new Ast.Expr.Binary("*",
+                                                new Ast.Expr.Access(Optional.empty(), "b"),
+                                                new Ast.Expr.Access(Optional.empty(), "c")
+                                        )
+                                ),
+                                new Ast.Expr.Access(Optional.empty(), "d")
+                        )
+                ),
+                Arguments.of("Comparison Chain",
+                        Arrays.asList(
+                                //a < b == c OR d
+                                new Token(Token.Type.IDENTIFIER, "a", 0),
+                                new Token(Token.Type.OPERATOR, "<", 2),
+                                new Token(Token.Type.IDENTIFIER, "b", 4),
+                                new Token(Token.Type.OPERATOR, "==", 6),
+                                new Token(Token.Type.IDENTIFIER, "c", 9),
+                                new Token(Token.Type.IDENTIFIER, "OR", 11),
+                                new Token(Token.Type.IDENTIFIER, "d", 14)
+                        ),
+                        new Ast.Expr.Binary("OR",
+                                new Ast.Expr.Binary("<",
+                                        new Ast.Expr.Access(Optional.empty(), "a"),
+                                        new Ast.Expr.Binary("==",
+                                                new Ast.Expr.Access(Optional.empty(), "b"),
+                                                new Ast.Expr.Access(Optional.empty(), "c")
+                                        )
+                                ),
+                                new Ast.Expr.Access(Optional.empty(), "d")
+                        )
                 )
         );
     }
@@ -566,6 +624,288 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testTokenBuffer() {
+        Ast.Source expected = new Parser(new Lexer(EXAMPLE).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new Lexer(EXAMPLE).lexBuffer()).parseSource());
+    }
+
+    @Test
+    void testStreaming() {
+        Ast.Source expected = new Parser(new Lexer(EXAMPLE).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new Lexer(new StringReader(EXAMPLE))).parseSource());
+    }
+
+    @Test
+    void testTokenBufferLiterals() {
+        String input = "print(\"plain\", \"C:\\\\new\\t\", '\\'', 'c');";
+        Ast.Expr expected = new Parser(new Lexer(input).lex()).parseExpression();
+        Assertions.assertEquals(expected, new Parser(new Lexer(input).lexBuffer()).parseExpression());
+        Assertions.assertEquals(new Ast.Expr.Function(Optional.empty(), "print", Arrays.asList(
+                new Ast.Expr.Literal("plain"),
+                new Ast.Expr.Literal("C:\\new\t"),
+                new Ast.Expr.Literal('\''),
+                new Ast.Expr.Literal('c')
+        )), expected);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRecovery(String test, String input, List<Integer> indices, List<String> members) {
+        List<ParseException> errors = new ArrayList<>();
+        Ast.Source source = new Parser(new Lexer(input).lex(errors)).parseSource(errors);
+        Assertions.assertEquals(indices, errors.stream().map(ParseException::getIndex).collect(Collectors.toList()));
+        List<String> names = new ArrayList<>();
+        source.getFields().forEach(field -> names.add(field.getName()));
+        source.getMethods().forEach(method -> names.add(method.getName() + "/" + method.getStatements().size()));
+        Assertions.assertEquals(members, names);
+    }
+
+    private static Stream<Arguments> testRecovery() {
+        return Stream.of(
+                Arguments.of("No Errors", EXAMPLE, Arrays.asList(), Arrays.asList("first", "main/1")),
+                Arguments.of("Statement Errors",
+                        "DEF main() DO\n    x = ;\n    print(1);\n    y = 2\nEND",
+                        Arrays.asList(20, 46), Arrays.asList("main/1")
+                ),
+                Arguments.of("Nested Statement Error",
+                        "DEF main() DO\n    IF x DO\n        y = ;\n    ELSE\n        z;\n    END\n    w;\nEND",
+                        Arrays.asList(36), Arrays.asList("main/2")
+                ),
+                Arguments.of("Missing END",
+                        "DEF f() DO\n    IF x DO\n        y;\nEND\nDEF g() DO\nEND",
+                        Arrays.asList(38), Arrays.asList("g/0")
+                ),
+                Arguments.of("Field Error",
+                        "LET x = ;\nLET y = 1;\nDEF main() DO END",
+                        Arrays.asList(6), Arrays.asList("y", "main/0")
+                ),
+                Arguments.of("Stray Tokens",
+                        "LET x = 1;\n) ) LET y = 2;",
+                        Arrays.asList(11), Arrays.asList("x", "y")
+                ),
+                Arguments.of("Lexer Error",
+                        "LET x = 'ab';\nLET y = 2;",
+                        Arrays.asList(10, 6), Arrays.asList("y")
+                )
+        );
+    }
+
+    @Test
+    void testStacklessException() {
+        ParseException exception = Assertions.assertThrows(ParseException.class,
+                () -> new Parser(new Lexer("DEF main() DO\n    IF x DO\n        y = ;\n    END\nEND").lex()).parseSource());
+        Assertions.assertEquals(36, exception.getIndex());
+        Assertions.assertEquals(0, exception.getStackTrace().length);
+        Assertions.assertNull(exception.getCause());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testParallel(String test, String input) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Function<String, Parser> parser : Arrays.<Function<String, Parser>>asList(
+                    source -> new Parser(new Lexer(source).lex()),
+                    source -> new Parser(new Lexer(source).lexBuffer()))) {
+                Ast.Source expected;
+                try {
+                    expected = parser.apply(input).parseSource();
+                } catch (ParseException e) {
+                    ParseException actual = Assertions.assertThrows(ParseException.class, () -> parser.apply(input).parseSourceParallel(pool));
+                    Assertions.assertEquals(e.getMessage(), actual.getMessage());
+                    Assertions.assertEquals(e.getIndex(), actual.getIndex());
+                    continue;
+                }
+                Assertions.assertEquals(expected, parser.apply(input).parseSourceParallel(pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallel() {
+        String generated = new ProgramGenerator(15).methods(200).generate();
+        int error = generated.indexOf(";", generated.length() / 2);
+        return Stream.of(
+                Arguments.of("Small", EXAMPLE),
+                Arguments.of("Generated", generated),
+                Arguments.of("Missing Semicolon", generated.substring(0, error) + generated.substring(error + 1)),
+                Arguments.of("Missing END", generated.substring(0, generated.lastIndexOf("END"))),
+                Arguments.of("END Identifier", generated + "DEF name() DO\n    print(END);\nEND\n")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testIncremental(String test, String find, String replace, int parsed) {
+        String input = "LET x: Integer = 1;\nLET y: Integer = 2;\n"
+                + "DEF f(): Integer DO\n    RETURN x;\nEND\n"
+                + "DEF g(): Integer DO\n    IF y > 1 DO\n        RETURN y;\n    END\n    RETURN 0;\nEND\n"
+                + "DEF main() DO\n    print(f() + g());\nEND\n";
+        int offset = input.indexOf(find);
+        String edited = input.substring(0, offset) + replace + input.substring(offset + find.length());
+        TokenBuffer tokens = new Lexer(input).lexBuffer();
+        Ast.Source previous = new Parser(tokens).parseSource();
+        int[] region = Lexer.relex(tokens, offset, find.length(), replace);
+        Ast.Source expected;
+        try {
+            expected = new Parser(new Lexer(edited).lex()).parseSource();
+        } catch (ParseException e) {
+            ParseException actual = Assertions.assertThrows(ParseException.class,
+                    () -> new Parser(tokens).parseSource(previous, region[0], region[1]));
+            Assertions.assertEquals(e.getMessage(), actual.getMessage());
+            Assertions.assertEquals(e.getIndex(), actual.getIndex());
+            return;
+        }
+        Ast.Source actual = new Parser(tokens).parseSource(previous, region[0], region[1]);
+        Assertions.assertEquals(expected, actual);
+        List<Ast> members = new ArrayList<>(actual.getFields());
+        members.addAll(actual.getMethods());
+        List<Ast> reused = new ArrayList<>(previous.getFields());
+        reused.addAll(previous.getMethods());
+        Assertions.assertEquals(parsed, members.stream().filter(member -> reused.stream().noneMatch(m -> m == member)).count());
+    }
+
+    private static Stream<Arguments> testIncremental() {
+        return Stream.of(
+                Arguments.of("Method Body", "RETURN y;", "RETURN y + 1;", 1),
+                Arguments.of("Field Value", "= 2", "= 3", 1),
+                Arguments.of("Insert Field", "DEF f", "LET z: Integer = 0;\nDEF f", 2),
+                Arguments.of("Delete Method", "DEF g(): Integer DO\n    IF y > 1 DO\n        RETURN y;\n    END\n    RETURN 0;\nEND\n", "", 1),
+                Arguments.of("Join Methods", "END\nDEF g(): Integer DO", "", 1),
+                Arguments.of("Unchanged", "RETURN x", "RETURN x", 1),
+                Arguments.of("Syntax Error", "RETURN 0;", "RETURN 0", 0),
+                Arguments.of("Missing END", "    END\n    RETURN 0;", "    RETURN 0;", 0),
+                Arguments.of("Stray Token", "LET y", ") LET y", 0)
+        );
+    }
+
+    @Test
+    void testIncrementalGenerated() {
+        String input = new ProgramGenerator(17).methods(100).generate();
+        TokenBuffer tokens = new Lexer(input).lexBuffer();
+        Ast.Source previous = new Parser(tokens).parseSource();
+        int offset = input.indexOf("RETURN", input.length() / 2);
+        int[] region = Lexer.relex(tokens, offset, 0, "x = 1;\n");
+        Ast.Source actual = new Parser(tokens).parseSource(previous, region[0], region[1]);
+        Assertions.assertEquals(new Parser(new Lexer(tokens.getSource()).lex()).parseSource(), actual);
+        Assertions.assertEquals(previous.getMethods().size() - 1, IntStream.range(0, actual.getMethods().size())
+                .filter(i -> actual.getMethods().get(i) == previous.getMethods().get(i)).count());
+        Assertions.assertTrue(IntStream.range(0, actual.getFields().size())
+                .allMatch(i -> actual.getFields().get(i) == previous.getFields().get(i)));
+    }
+
+    @Test
+    void testLazy() {
+        String input = new ProgramGenerator(16).methods(20).generate();
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        for (Parser parser : Arrays.asList(new Parser(new Lexer(input).lex()), new Parser(new Lexer(input).lexBuffer()))) {
+            parser.setLazy(true);
+            Ast.Source source = parser.parseSource();
+            Assertions.assertTrue(source.getMethods().stream().noneMatch(Ast.Method::isParsed));
+            Assertions.assertEquals(expected, source);
+            Assertions.assertTrue(source.getMethods().stream().allMatch(Ast.Method::isParsed));
+        }
+    }
+
+    @Test
+    void testLazyConcurrent() {
+        Parser parser = new Parser(new Lexer(EXAMPLE).lex());
+        parser.setLazy(true);
+        Ast.Method method = parser.parseSource().getMethods().get(0);
+        List<List<Ast.Stmt>> statements = IntStream.range(0, 16).parallel()
+                .mapToObj(i -> method.getStatements())
+                .collect(Collectors.toList());
+        Assertions.assertTrue(statements.stream().allMatch(s -> s == statements.get(0)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testLazyException(String test, String input) {
+        ParseException expected = Assertions.assertThrows(ParseException.class, () -> new Parser(new Lexer(input).lex()).parseSource());
+        Parser parser = new Parser(new Lexer(input).lex());
+        parser.setLazy(true);
+        Ast.Method method = parser.parseSource().getMethods().get(0);
+        ParseException actual = Assertions.assertThrows(ParseException.class, method::getStatements);
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+        Assertions.assertEquals(expected.getIndex(), actual.getIndex());
+        ParseException retry = Assertions.assertThrows(ParseException.class, method::getStatements);
+        Assertions.assertEquals(expected.getMessage(), retry.getMessage());
+        Assertions.assertEquals(expected.getIndex(), retry.getIndex());
+    }
+
+    private static Stream<Arguments> testLazyException() {
+        return Stream.of(
+                Arguments.of("Missing Semicolon", "DEF main() DO\n    print(1)\nEND"),
+                Arguments.of("Missing Expression", "DEF main() DO\n    IF DO END\nEND"),
+                Arguments.of("Nested Block", "DEF main() DO\n    WHILE TRUE DO\n        x = 1\n    END\nEND")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testLazyName(String test, String input) {
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        for (Parser parser : Arrays.asList(new Parser(new Lexer(input).lex()), new Parser(new Lexer(input).lexBuffer()))) {
+            parser.setLazy(true);
+            Assertions.assertEquals(expected, parser.parseSource());
+        }
+    }
+
+    private static Stream<Arguments> testLazyName() {
+        return Stream.of(
+                Arguments.of("End Argument", "DEF main() DO\n    print(END);\nEND"),
+                Arguments.of("End Operand", "DEF main() DO\n    x = END + 1;\nEND"),
+                Arguments.of("End Return", "DEF main() DO\n    RETURN END;\nEND\nDEF other() DO\n    f(END);\nEND"),
+                Arguments.of("Do Argument", "DEF main() DO\n    print(DO);\nEND\nDEF other() DO\n    print(END);\nEND")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testDeepExpression(String test, String prefix, String suffix) {
+        int depth = 100_000;
+        String input = String.join("", Collections.nCopies(depth, prefix)) + "x"
+                + String.join("", Collections.nCopies(depth, suffix));
+        Ast.Expr expr = new Parser(new Lexer(input).lex()).parseExpression();
+        int levels = 0;
+        while (!(expr instanceof Ast.Expr.Access) || ((Ast.Expr.Access) expr).getReceiver().isPresent()) {
+            if (expr instanceof Ast.Expr.Access) {
+                expr = ((Ast.Expr.Access) expr).getReceiver().get();
+            } else if (expr instanceof Ast.Expr.Group) {
+                expr = ((Ast.Expr.Group) expr).getExpression();
+            } else if (expr instanceof Ast.Expr.Binary) {
+                expr = ((Ast.Expr.Binary) expr).getRight();
+            } else {
+                List<Ast.Expr> arguments = ((Ast.Expr.Function) expr).getArguments();
+                expr = arguments.get(arguments.size() - 1);
+            }
+            levels++;
+        }
+        Assertions.assertTrue(levels >= depth, "Expected " + depth + " levels, received " + levels + ".");
+    }
+
+    private static Stream<Arguments> testDeepExpression() {
+        return Stream.of(
+                Arguments.of("Nested Groups", "(", ")"),
+                Arguments.of("Comparison Chain", "x == ", ""),
+                Arguments.of("Grouped Operands", "(x + ", ")"),
+                Arguments.of("Nested Calls", "f(x, ", ")"),
+                Arguments.of("Method Receivers", "x.m(", ").y")
+        );
+    }
+
+    private static final String EXAMPLE = String.join("\n",
+            "LET first: Integer = 1;",
+            "DEF main(): Integer DO",
+            "    WHILE first != 10 DO",
+            "        print(\"first\");",
+            "        first = first + 1;",
+            "    END",
+            "END"
+    );
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).
@@ -0,0 +1,257 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random PLC programs of a controlled size and shape for benchmarks
+ * and scaling tests. The same seed and settings always produce the same
+ * program, and every program passes the {@link Analyzer} and terminates when
+ * interpreted (returning the sum of calling each method from main).
+ *
+ * Programs are made up of:
+ *
+ *  - {@link #identifiers(int)} Integer fields plus a few fields of other types,
+ *  - {@link #methods(int)} methods, each with blocks nested {@link
+ *    #depth(int)} IF/WHILE statements deep and calling one earlier method,
+ *  - a few methods with FOR loops over an IntegerIterable parameter, which
+ *    are analyzed but never called since a program cannot create one, and
+ *  - a main method calling every other method.
+ *
+ * Arithmetic chains have {@link #length(int)} operands and only use
+ * {@code + - *}, so there is no division by zero. WHILE loops run at most
+ * twice, and only once when nested more than a few levels deep, so deeply
+ * nested programs still finish quickly.
+ */
+public final class ProgramGenerator {
+
+    private static final String[] OPERATORS = {"+", "-", "*"};
+    private static final String[] COMPARISONS = {"<", "<=", ">", ">=", "==", "!="};
+
+    private final Random random;
+    private int methods = 10;
+    private int depth = 3;
+    private int identifiers = 100;
+    private int statements = 4;
+    private int length = 4;
+
+    private final StringBuilder builder = new StringBuilder();
+    private final List<String> locals = new ArrayList<>();
+    private int indent = 0;
+    private int counter = 0;
+
+    public ProgramGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Sets the number of methods called from main.
+     */
+    public ProgramGenerator methods(int methods) {
+        this.methods = methods;
+        return this;
+    }
+
+    /**
+     * Sets how deeply IF and WHILE statements are nested in each method.
+     */
+    public ProgramGenerator depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * Sets the number of distinct Integer fields used by expressions.
+     */
+    public ProgramGenerator identifiers(int identifiers) {
+        this.identifiers = identifiers;
+        return this;
+    }
+
+    /**
+     * Sets the number of statements in each block besides nested ones.
+     */
+    public ProgramGenerator statements(int statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    /**
+     * Sets the number of operands in arithmetic expression chains.
+     */
+    public ProgramGenerator length(int length) {
+        this.length = length;
+        return this;
+    }
+
+    public String generate() {
+        builder.setLength(0);
+        for (int i = 0; i < identifiers; i++) {
+            line("LET ", field(i), ": Integer = ", random.nextInt(100), ";");
+        }
+        line("LET ratio: Decimal = ", 1 + random.nextInt(99), ".", random.nextInt(100), ";");
+        line("LET label: String = \"label\\t", random.nextInt(1000), "\";");
+        line("LET separator: Character = '\\n';");
+        for (int i = 0; i < methods; i++) {
+            method(i);
+            if (i % 10 == 9) {
+                iterator(i / 10);
+            }
+        }
+        line("DEF main(): Integer DO");
+        indent++;
+        line("LET sum: Integer = 0;");
+        for (int i = 0; i < methods; i++) {
+            line("LET r", i, ": Integer = f", i, "(", random.nextInt(10), ", ", random.nextInt(10), ");");
+            line("sum = sum + r", i, ";");
+        }
+        line("RETURN sum;");
+        indent--;
+        line("END");
+        return builder.toString();
+    }
+
+    private void method(int index) {
+        locals.clear();
+        counter = 0;
+        locals.add("a");
+        locals.add("b");
+        line("DEF f", index, "(a: Integer, b: Integer): Integer DO");
+        indent++;
+        if (index > 0) { // a random earlier method, so calls nest logarithmically deep
+            String call = "f" + random.nextInt(index) + "(" + chain() + ", b)";
+            line("LET ", declare(), ": Integer = ", call, ";");
+        }
+        block(0);
+        line("LET text: String = label + \"f", index, "\";");
+        line("RETURN ", chain(), ";");
+        indent--;
+        line("END");
+    }
+
+    private void iterator(int index) {
+        line("DEF each", index, "(items: IntegerIterable): Integer DO");
+        indent++;
+        line("LET total: Integer = 0;");
+        line("FOR item IN items DO");
+        indent++;
+        line("total = total + item * ", field(random.nextInt(identifiers)), ";");
+        indent--;
+        line("END");
+        line("RETURN total;");
+        indent--;
+        line("END");
+    }
+
+    /**
+     * Generates the statements of a block, one of which is a nested block
+     * until the depth is reached. Locals declared in the block are removed
+     * from scope afterwards.
+     */
+    private void block(int level) {
+        int scope = locals.size();
+        int nested = level < depth ? random.nextInt(statements + 1) : -1;
+        for (int i = 0; i <= statements; i++) {
+            if (i == nested) {
+                if (random.nextInt(10) < 7) {
+                    branch(level);
+                } else {
+                    loop(level);
+                }
+            } else if (i < statements) {
+                if (locals.size() > 2 && random.nextBoolean()) {
+                    line(locals.get(2 + random.nextInt(locals.size() - 2)), " = ", chain(), ";");
+                } else {
+                    String value = chain();
+                    line("LET ", declare(), ": Integer = ", value, ";");
+                }
+            }
+        }
+        locals.subList(scope, locals.size()).clear();
+    }
+
+    private void branch(int level) {
+        line("IF ", condition(), " DO");
+        indent++;
+        block(level + 1);
+        indent--;
+        if (random.nextBoolean()) {
+            line("ELSE");
+            indent++;
+            line("LET ", declare(), ": Decimal = ratio * ", random.nextInt(10), ".5;");
+            locals.remove(locals.size() - 1); // not an Integer
+            indent--;
+        }
+        line("END");
+    }
+
+    private void loop(int level) {
+        String count = "c" + counter++; // not added to locals, so never reassigned
+        line("LET ", count, ": Integer = 0;");
+        line("WHILE ", count, " < ", level < 3 ? 2 : 1, " DO");
+        indent++;
+        block(level + 1);
+        line(count, " = ", count, " + 1;");
+        indent--;
+        line("END");
+    }
+
+    private String condition() {
+        String comparison = chain() + " " + COMPARISONS[random.nextInt(COMPARISONS.length)] + " " + operand();
+        if (random.nextInt(4) == 0) {
+            String other = operand() + " " + COMPARISONS[random.nextInt(COMPARISONS.length)] + " " + operand();
+            return comparison + (random.nextBoolean() ? " AND " : " OR ") + other;
+        }
+        return comparison;
+    }
+
+    /**
+     * Generates an arithmetic chain of Integer operands, occasionally grouping
+     * the first two.
+     */
+    private String chain() {
+        StringBuilder chain = new StringBuilder();
+        boolean group = length > 2 && random.nextInt(4) == 0;
+        if (group) {
+            chain.append("(");
+        }
+        chain.append(operand());
+        for (int i = 1; i < length; i++) {
+            chain.append(" ").append(OPERATORS[random.nextInt(OPERATORS.length)]).append(" ").append(operand());
+            if (group && i == 1) {
+                chain.append(")");
+            }
+        }
+        return chain.toString();
+    }
+
+    private String operand() {
+        switch (random.nextInt(3)) {
+            case 0: return String.valueOf(random.nextInt(10));
+            case 1: return locals.get(random.nextInt(locals.size()));
+            default: return field(random.nextInt(identifiers));
+        }
+    }
+
+    private String declare() {
+        String local = "v" + counter++;
+        locals.add(local);
+        return local;
+    }
+
+    private static String field(int index) {
+        return "field" + index;
+    }
+
+    private void line(Object... parts) {
+        for (int i = 0; i < indent; i++) {
+            builder.append("    ");
+        }
+        for (Object part : parts) {
+            builder.append(part);
+        }
+        builder.append('\n');
+    }
+
+}
@@ -0,0 +1,74 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.stream.Stream;
+
+/**
+ * Tests that programs from {@link ProgramGenerator} are valid and grow in
+ * proportion to the number of methods. The timing of each stage as programs
+ * grow is measured by {@code ScalingBenchmark}.
+ */
+final class ScalingTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testGenerated(String test, ProgramGenerator generator) {
+        String source = generator.generate();
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        new Generator(new PrintWriter(new StringWriter())).visit(ast);
+        Assertions.assertNotNull(new Interpreter(new Scope(null)).visit(ast).getValue());
+    }
+
+    private static Stream<Arguments> testGenerated() {
+        return Stream.of(
+                Arguments.of("Default", new ProgramGenerator(1)),
+                Arguments.of("Flat", new ProgramGenerator(2).depth(0).statements(20)),
+                Arguments.of("Deep", new ProgramGenerator(3).methods(3).depth(40)),
+                Arguments.of("Long Expressions", new ProgramGenerator(4).length(50)),
+                Arguments.of("Single Identifier", new ProgramGenerator(5).identifiers(1).length(1))
+        );
+    }
+
+    @Test
+    void testSeed() {
+        Assertions.assertEquals(new ProgramGenerator(42).generate(), new ProgramGenerator(42).generate());
+        Assertions.assertNotEquals(new ProgramGenerator(42).generate(), new ProgramGenerator(43).generate());
+    }
+
+    /**
+     * Asserts that a program with 8 times as many methods has about 8 times as
+     * many tokens, so the timings of {@code ScalingBenchmark} compare inputs
+     * of proportional size. Timing itself is left to the benchmark, as wall
+     * clock ratios are too noisy for the unit tests.
+     */
+    @Test
+    void testTokens() {
+        LexerStatistics small = statistics(source(250));
+        LexerStatistics large = statistics(source(2000));
+        double ratio = (double) large.getCount() / small.getCount();
+        Assertions.assertTrue(ratio > 6 && ratio < 10, "Expected 8x the tokens, but found " + ratio + "x.");
+        ratio = (double) large.getLength() / small.getLength();
+        Assertions.assertTrue(ratio > 6 && ratio < 10, "Expected 8x the token characters, but found " + ratio + "x.");
+    }
+
+    private static LexerStatistics statistics(String source) {
+        LexerStatistics statistics = new LexerStatistics();
+        Lexer lexer = new Lexer(source);
+        lexer.setTrace(statistics);
+        lexer.lex();
+        return statistics;
+    }
+
+    private static String source(int methods) {
+        return new ProgramGenerator(methods).methods(methods).identifiers(methods / 10).generate();
+    }
+
+}
@@ -0,0 +1,77 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs the {@link InterpreterTests} with {@link Interpreter.Tiering} promoting
+ * every method on its first call, and checks when methods and loops are
+ * compiled on whole programs.
+ */
+final class TieringTests extends InterpreterTests {
+
+    @Override
+    Scope test(Ast ast, Object expected, Scope scope) {
+        Interpreter interpreter = new Interpreter(scope, new Interpreter.Tiering(1, 1));
+        if (expected != null) {
+            Assertions.assertEquals(expected, interpreter.visit(ast).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> interpreter.visit(ast));
+        }
+        return interpreter.getScope();
+    }
+
+    @Override
+    Object run(Ast.Source ast) {
+        return new Interpreter(new Scope(null), new Interpreter.Tiering(1, 1)).visit(ast).getValue();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testTiering(String test, String input, int invocations, int backEdges, Object expected, int promoted, int loops) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        Interpreter.Tiering tiering = new Interpreter.Tiering(invocations, backEdges);
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null), tiering).visit(ast).getValue());
+        Assertions.assertEquals(promoted, tiering.getPromoted());
+        Assertions.assertEquals(loops, tiering.getLoops());
+    }
+
+    private static Stream<Arguments> testTiering() {
+        String early = String.join("\n",
+                "DEF find(limit: Integer): Integer DO",
+                "    LET i = 0;",
+                "    WHILE TRUE DO",
+                "        IF i * i > limit DO",
+                "            RETURN i;",
+                "        END",
+                "        i = i + 1;",
+                "    END",
+                "END",
+                "DEF main(): Integer DO",
+                "    RETURN find(1000) + find(10);",
+                "END"
+        );
+        return Stream.of(
+                Arguments.of("Cold Loop", LOOP, 100, 1000, BigInteger.valueOf(328350), 0, 0),
+                Arguments.of("Hot Loop", LOOP, 100, 10, BigInteger.valueOf(328350), 1, 1),
+                Arguments.of("Cold Recursion", RECURSION, 10000, 1000, BigInteger.valueOf(610), 0, 0),
+                Arguments.of("Hot Recursion", RECURSION, 100, 1000, BigInteger.valueOf(610), 1, 0),
+                Arguments.of("Return From Loop", early, 100, 20, BigInteger.valueOf(36), 1, 1)
+        );
+    }
+
+    @Test
+    void testThresholds() {
+        Interpreter.Tiering tiering = new Interpreter.Tiering();
+        Assertions.assertEquals(Interpreter.Tiering.INVOCATIONS, tiering.getInvocationThreshold());
+        Assertions.assertEquals(Interpreter.Tiering.BACK_EDGES, tiering.getBackEdgeThreshold());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Interpreter.Tiering(0, 1));
+    }
+
+}